@@ -0,0 +1,53 @@
+package no.redeye.lib.jdax;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Binds IN clause values as one array parameter.
+ * <pre>
+ * In:  WHERE id IN (??)
+ * Out: WHERE id IN (SELECT * FROM UNNEST(?))
+ * </pre>
+ * The driver must support createArrayOf(); pools such as HikariCP evict
+ * connections that throw SQLFeatureNotSupportedException.
+ */
+final class ArrayInClause implements InClauseStrategy {
+
+    static final ArrayInClause INSTANCE = new ArrayInClause();
+
+    private ArrayInClause() {
+    }
+
+    @Override
+    public String apply(Connection connection, int index, Object[] in, List<Object> binds) throws SQLException {
+        String typeName = typeName(in[0]);
+        if (null == typeName) {
+            return null;
+        }
+
+        binds.add(connection.createArrayOf(typeName, in));
+        return "SELECT * FROM UNNEST(?)";
+    }
+
+    /**
+     * SQL element type of the array, from the first value.
+     */
+    static String typeName(Object value) {
+        if ((value instanceof Integer) || (value instanceof Short)) {
+            return "INTEGER";
+        } else if (value instanceof Long) {
+            return "BIGINT";
+        } else if (value instanceof String) {
+            return "VARCHAR";
+        } else if (value instanceof BigDecimal) {
+            return "DECIMAL";
+        } else if (value instanceof UUID) {
+            return "UUID";
+        }
+        return null;
+    }
+}
@@ -0,0 +1,79 @@
+package no.redeye.lib.jdax;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import no.redeye.lib.jdax.types.Columns;
+import no.redeye.lib.jdax.types.ResultRows;
+
+/**
+ * ResultRows of a select that is executed in several statements, one for each
+ * part of an oversized IN clause. Statements are executed lazily, when the
+ * previous result set is exhausted, and each statement is closed before the
+ * next one is executed.
+ * <p>
+ * Results are returned in statement order. ORDER BY, DISTINCT and aggregates
+ * apply to each statement separately.
+ */
+final class ChunkedResultRows extends ResultRows {
+
+    /**
+     * Prepares and binds the statement for one part of the IN clauses.
+     */
+    @FunctionalInterface
+    interface Chunks {
+
+        PreparedStatement prepare(Object[][] ins) throws SQLException;
+    }
+
+    private final Chunks chunks;
+    private final Iterator<Object[][]> remaining;
+
+    private ChunkedResultRows(ResultSet first, PreparedStatement statement, Chunks chunks, Iterator<Object[][]> remaining, Columns columns, boolean allowNulls) throws SQLException {
+        super(first, statement, columns, allowNulls);
+        this.chunks = chunks;
+        this.remaining = remaining;
+    }
+
+    /**
+     * Rows that start with the executed first statement, and continue with
+     * the others.
+     *
+     * @param first      result set of the first statement
+     * @param statement  first statement
+     * @param chunks
+     * @param remaining  IN clause parameters of the other statements
+     * @param columns    Column metadata from an earlier execution, or null
+     * @param allowNulls
+     *
+     * @return
+     *
+     * @throws SQLException
+     */
+    static ResultRows of(ResultSet first, PreparedStatement statement, Chunks chunks, Iterator<Object[][]> remaining, Columns columns, boolean allowNulls) throws SQLException {
+        return new ChunkedResultRows(first, statement, chunks, remaining, columns, allowNulls);
+    }
+
+    @Override
+    public boolean next() throws SQLException {
+        while (!super.next()) {
+            if (!remaining.hasNext()) {
+                return false;
+            }
+            release();
+            PreparedStatement ps = chunks.prepare(remaining.next());
+            continueWith(executeQuery(ps), ps);
+        }
+        return true;
+    }
+
+    private static ResultSet executeQuery(PreparedStatement ps) throws SQLException {
+        try {
+            return ps.executeQuery();
+        } catch (SQLException e) {
+            ps.close();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package no.redeye.lib.jdax;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A connection bound to the current thread for the length of a scope. The
+ * scope that binds the connection owns it, and closes it when the scope is
+ * closed. Scopes opened while the thread already has a connection for the
+ * datasource share that connection, and leave it open.
+ * <p>
+ * Closing the owning scope rolls back changes that were not committed, so
+ * the connection goes back to the pool without an open transaction.
+ * {@link Connector#inScope(String, ConnectionScope.Work)} commits the work
+ * when it returns.
+ * <p>
+ * Use with try-with-resources, or through
+ * {@link Connector#inScope(String, ConnectionScope.Work)}:
+ * <pre>
+ * try (ConnectionScope scope = Connector.scope("my-ds")) {
+ *     dao.select(...);
+ * }
+ * </pre>
+ */
+public final class ConnectionScope implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("apiLogger");
+
+    /**
+     * Work to run with a bound connection.
+     *
+     * @param <T>
+     */
+    @FunctionalInterface
+    public interface Work<T> {
+
+        T run() throws SQLException;
+    }
+
+    private final String key;
+    private final Connection connection;
+    private final Thread owner;
+    private boolean isClosed = false;
+
+    ConnectionScope(String key, Connection connection, Thread owner) {
+        this.key = key;
+        this.connection = connection;
+        this.owner = owner;
+    }
+
+    /**
+     * Connection bound by the scope.
+     *
+     * @return
+     */
+    public Connection connection() {
+        return connection;
+    }
+
+    /**
+     * Whether this scope bound the connection, and closes it on exit.
+     *
+     * @return
+     */
+    public boolean isOwner() {
+        return null != owner;
+    }
+
+    /**
+     * Roll back uncommitted changes and release the connection, if this scope
+     * bound it. An owning scope must be closed on the thread that opened it.
+     */
+    @Override
+    public void close() {
+        if (isClosed || (null == owner)) {
+            isClosed = true;
+            return;
+        }
+        if (Thread.currentThread() != owner) {
+            throw new IllegalStateException("Connection scope (key=" + key + ") must be closed on the thread that opened it");
+        }
+        isClosed = true;
+        logger.trace("Connection scope close, (key={})", key);
+        try {
+            if (!connection.isClosed() && !connection.getAutoCommit()) {
+                connection.rollback();
+            }
+        } catch (SQLException e) {
+            logger.error("Error rolling back connection scope (key={}): {}", key, e);
+        }
+        Connector.close(key);
+        Connector.clearThread();
+    }
+}
@@ -1,12 +1,27 @@
 package no.redeye.lib.jdax;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
 import javax.sql.DataSource;
+import no.redeye.lib.jdax.types.CacheStatistics;
+import no.redeye.lib.jdax.types.TransactionStatistics;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -14,10 +29,82 @@ public class Connector {
 
     private static final Logger logger = LogManager.getLogger("apiLogger");
 
-    private record DataSourceEntry(DataSource dataSource, int features) {
+    private record DataSourceEntry(DataSource dataSource, int features, int[] settings, StatementCache.Counters statementCounters,
+            TransactionCounters transactionCounters, Replicas replicas) {
 
     }
 
+    /**
+     * Read replicas of a datasource, registered under derived keys, with the
+     * number of reads in progress on each.
+     */
+    private static final class Replicas {
+
+        private final String[] keys;
+        private final AtomicInteger[] outstanding;
+
+        private Replicas(String[] keys) {
+            this.keys = keys;
+            this.outstanding = new AtomicInteger[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                outstanding[i] = new AtomicInteger();
+            }
+        }
+
+        /**
+         * Key of the replica with the fewest reads in progress, starting from
+         * a random replica to spread ties.
+         */
+        String acquire() {
+            int start = (keys.length > 1) ? ThreadLocalRandom.current().nextInt(keys.length) : 0;
+            int best = start;
+            int fewest = outstanding[start].get();
+            for (int i = 1; i < keys.length; i++) {
+                int replica = (start + i) % keys.length;
+                int count = outstanding[replica].get();
+                if (count < fewest) {
+                    best = replica;
+                    fewest = count;
+                }
+            }
+            outstanding[best].incrementAndGet();
+            return keys[best];
+        }
+
+        void release(String key) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i].equals(key)) {
+                    outstanding[i].decrementAndGet();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Transaction counters of a datasource.
+     */
+    private static final class TransactionCounters {
+
+        private final LongAdder commits = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+        private final LongAdder wastedNanos = new LongAdder();
+
+        TransactionStatistics statistics() {
+            return new TransactionStatistics(commits.sum(), failures.sum(), retries.sum(), wastedNanos.sum());
+        }
+    }
+
+    /**
+     * SQLStates of failures that succeed when the transaction is retried:
+     * serialization failure or deadlock, and PostgreSQL deadlock. Lock wait
+     * timeouts are not retried, as the locks they waited for are still held.
+     */
+    private static final Set<String> RETRY_STATES = Set.of("40001", "40P01");
+
+    private static final int MAX_BACKOFF_SHIFT = 6;
+
     private static final Map<String, DataSourceEntry> datasources = new ConcurrentHashMap<>();
 
     private static final ThreadLocal<AtomicInteger> activityCount = new ThreadLocal<>() {
@@ -34,6 +121,27 @@ public class Connector {
         }
     };
 
+    private static final ThreadLocal<Map<String, Long>> lastWrites = new ThreadLocal<>() {
+        @Override
+        protected Map<String, Long> initialValue() {
+            return new HashMap<>();
+        }
+    };
+
+    private static final ThreadLocal<Set<String>> transactions = new ThreadLocal<>() {
+        @Override
+        protected Set<String> initialValue() {
+            return new HashSet<>();
+        }
+    };
+
+    private static final ThreadLocal<Map<String, StatementCache>> statementCaches = new ThreadLocal<>() {
+        @Override
+        protected Map<String, StatementCache> initialValue() {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
     /**
      * Prepare the ThreadLocal for binding a new DataSource. This method accepts
      * a Function that returns a DataSource when applied.
@@ -45,12 +153,28 @@ public class Connector {
      * @throws SQLException
      */
     public static void prepare(String key, Function<String, DataSource> function, Features... flags) throws SQLException {
+        prepare(key, function, Map.of(), flags);
+    }
+
+    /**
+     * Prepare the ThreadLocal for binding a new DataSource, with numeric
+     * settings. This method accepts a Function that returns a DataSource when
+     * applied.
+     *
+     * @param key
+     * @param function
+     * @param settings
+     * @param flags
+     *
+     * @throws SQLException
+     */
+    public static void prepare(String key, Function<String, DataSource> function, Map<Settings, Integer> settings, Features... flags) throws SQLException {
         if (null == function) {
             throw new SQLException("The provided connection cannot be null, (key=" + key + ")");
         }
 
         DataSource ds = function.apply(key);
-        prepare(key, ds, flags);
+        prepare(key, ds, settings, flags);
     }
 
     /**
@@ -64,7 +188,42 @@ public class Connector {
      * @throws SQLException
      */
     public static void prepare(String key, DataSource dataSource, Features... flags) throws SQLException {
-        if (null == dataSource) {
+        prepare(key, dataSource, Map.of(), flags);
+    }
+
+    /**
+     * Add DataSource to the registry, with numeric settings. Settings that are
+     * not provided use their default value. An SQLException is thrown if the
+     * key already exists.
+     *
+     * @param key
+     * @param dataSource
+     * @param settings
+     * @param flags
+     *
+     * @throws SQLException
+     */
+    public static void prepare(String key, DataSource dataSource, Map<Settings, Integer> settings, Features... flags) throws SQLException {
+        prepare(key, dataSource, List.of(), settings, flags);
+    }
+
+    /**
+     * Add a primary DataSource and its read replicas to the registry under one
+     * key. DAOType selects are routed to the replica with the fewest reads in
+     * progress. Writes, and reads in a transaction or within
+     * Settings.READ_YOUR_WRITES_WINDOW of a write on the same thread, use the
+     * primary. The replicas share the settings and features of the primary.
+     *
+     * @param key
+     * @param primary
+     * @param replicas
+     * @param settings
+     * @param flags
+     *
+     * @throws SQLException
+     */
+    public static void prepare(String key, DataSource primary, List<DataSource> replicas, Map<Settings, Integer> settings, Features... flags) throws SQLException {
+        if (null == primary) {
             throw new SQLException("Cannot register a null datasource, (key=" + key + ")");
         }
 
@@ -75,20 +234,50 @@ public class Connector {
             }
         }
 
+        int[] values = new int[Settings.values().length];
+        for (Settings setting : Settings.values()) {
+            Integer value = (null != settings) ? settings.get(setting) : null;
+            if ((null != value) && (value < 0)) {
+                throw new SQLException("Setting " + setting + " cannot be negative, (key=" + key + ")");
+            }
+            values[setting.ordinal()] = (null != value) ? value : setting.defaultValue();
+        }
+
         if (datasources.containsKey(key)) {
             return;
         }
 
-        datasources.put(key, new DataSourceEntry(dataSource, features));
+        Replicas routing = null;
+        if ((null != replicas) && !replicas.isEmpty()) {
+            String[] keys = new String[replicas.size()];
+            for (int i = 0; i < keys.length; i++) {
+                if (null == replicas.get(i)) {
+                    throw new SQLException("Cannot register a null replica datasource, (key=" + key + ")");
+                }
+                keys[i] = key + "#replica" + (i + 1);
+            }
+            for (int i = 0; i < keys.length; i++) {
+                datasources.put(keys[i], new DataSourceEntry(replicas.get(i), features, values, new StatementCache.Counters(), new TransactionCounters(), null));
+            }
+            routing = new Replicas(keys);
+        }
+        datasources.put(key, new DataSourceEntry(primary, features, values, new StatementCache.Counters(), new TransactionCounters(), routing));
     }
 
     /**
-     * Remove DataSource from the registry.
+     * Remove DataSource from the registry, and the current thread's last write
+     * to it.
      *
      * @param key
      */
     public static void remove(String key) {
-        datasources.remove(key);
+        lastWrites.get().remove(key);
+        DataSourceEntry entry = datasources.remove(key);
+        if ((null != entry) && (null != entry.replicas())) {
+            for (String replica : entry.replicas().keys) {
+                datasources.remove(replica);
+            }
+        }
         logger.trace("Remove datasource, (key=" + key + ")");
     }
 
@@ -107,6 +296,32 @@ public class Connector {
         return false;
     }
 
+    /**
+     * Return the value of a numeric setting for the connection, or the default
+     * value if the connection does not exist.
+     *
+     * @param key
+     * @param setting
+     *
+     * @return
+     */
+    public static int setting(String key, Settings setting) {
+        DataSourceEntry entry = datasources.get(key);
+        return (null != entry) ? entry.settings()[setting.ordinal()] : setting.defaultValue();
+    }
+
+    /**
+     * Hit/miss counters of the prepared statement caches for the connection.
+     *
+     * @param key
+     *
+     * @return
+     */
+    public static CacheStatistics statementCacheStatistics(String key) {
+        DataSourceEntry entry = datasources.get(key);
+        return (null != entry) ? entry.statementCounters().statistics() : new CacheStatistics(0, 0, 0, 0);
+    }
+
     private static void configure(String key, Connection connection) throws SQLException {
         connection.setAutoCommit(enabled(key, Features.AUTO_COMMIT_ENABLED) || !enabled(key, Features.AUTO_COMMIT_DISABLED));
         connection.setReadOnly(enabled(key, Features.READ_ONLY_MODE));
@@ -162,6 +377,386 @@ public class Connector {
         return threadLocalMap.get().get(key);
     }
 
+    /**
+     * Check if the current thread has a connection for the datasource.
+     *
+     * @param key
+     *
+     * @return
+     */
+    public static boolean bound(String key) {
+        return threadLocalMap.get().containsKey(key);
+    }
+
+    /**
+     * Key to read from: a replica when the datasource has replicas, and the
+     * thread is not in a transaction or within the read-your-writes window.
+     * Replica reads are counted as outstanding until
+     * {@link #releaseRead(String, String)}.
+     *
+     * @param key
+     *
+     * @return
+     *
+     * @throws SQLException
+     */
+    static String acquireRead(String key) throws SQLException {
+        DataSourceEntry entry = datasources.get(key);
+        if ((null == entry) || (null == entry.replicas()) || isWriting(key)) {
+            return key;
+        }
+        return entry.replicas().acquire();
+    }
+
+    /**
+     * End a read started with {@link #acquireRead(String)}.
+     *
+     * @param key
+     * @param readKey
+     */
+    static void releaseRead(String key, String readKey) {
+        DataSourceEntry entry = datasources.get(key);
+        if ((null != entry) && (null != entry.replicas()) && !key.equals(readKey)) {
+            entry.replicas().release(readKey);
+        }
+    }
+
+    /**
+     * Record a write on the current thread, for the read-your-writes window.
+     *
+     * @param key
+     */
+    static void wrote(String key) {
+        DataSourceEntry entry = datasources.get(key);
+        if ((null != entry) && (null != entry.replicas()) && (setting(key, Settings.READ_YOUR_WRITES_WINDOW) > 0)) {
+            lastWrites.get().put(key, System.nanoTime());
+        }
+    }
+
+    /**
+     * Whether reads must use the primary: the thread is in a transaction on
+     * it, or wrote to it within the read-your-writes window.
+     */
+    private static boolean isWriting(String key) throws SQLException {
+        if (transactions.get().contains(key)) {
+            return true;
+        }
+        Connection connection = threadLocalMap.get().get(key);
+        if ((null != connection) && !connection.getAutoCommit()) {
+            return true;
+        }
+        if (setting(key, Settings.READ_YOUR_WRITES_WINDOW) == 0) {
+            return false;
+        }
+        Long lastWrite = lastWrites.get().get(key);
+        if ((null != lastWrite) && isInWindow(key, lastWrite)) {
+            return true;
+        }
+        lastWrites.get().remove(key);
+        return false;
+    }
+
+    private static boolean isInWindow(String key, long lastWrite) {
+        return System.nanoTime() - lastWrite < setting(key, Settings.READ_YOUR_WRITES_WINDOW) * 1_000_000L;
+    }
+
+    /**
+     * Bind a connection to the current thread until the returned scope is
+     * closed. If the thread already has a connection for the datasource, the
+     * scope shares it and leaves it open.
+     *
+     * @param key
+     *
+     * @return
+     *
+     * @throws SQLException
+     */
+    public static ConnectionScope scope(String key) throws SQLException {
+        boolean isBound = bound(key);
+        Connection connection = connection(key);
+        logger.trace("Connection scope open, (key={}, owner={})", key, !isBound);
+        return new ConnectionScope(key, connection, isBound ? null : Thread.currentThread());
+    }
+
+    /**
+     * Run work with a connection bound to the current thread, and release the
+     * connection when the work returns or throws. When this call binds the
+     * connection, uncommitted changes are committed when the work returns,
+     * and rolled back when it throws. Work in a scope that shares an outer
+     * connection is left to the outer scope.
+     *
+     * @param <T>
+     * @param key
+     * @param work
+     *
+     * @return the result of the work
+     *
+     * @throws SQLException
+     */
+    public static <T> T inScope(String key, ConnectionScope.Work<T> work) throws SQLException {
+        try (ConnectionScope scope = scope(key)) {
+            try {
+                T result = work.run();
+                if (scope.isOwner() && !scope.connection().getAutoCommit()) {
+                    scope.connection().commit();
+                }
+                return result;
+            } catch (SQLException | RuntimeException | Error e) {
+                if (scope.isOwner()) {
+                    rollbackQuietly(key, scope.connection(), e);
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Run work in a transaction on a connection bound to the current thread,
+     * at the given isolation level. The work is committed when it returns,
+     * and rolled back when it throws. Work that fails with a deadlock or
+     * serialization failure is rolled back and run again, up to
+     * Settings.TRANSACTION_RETRIES times, after a jittered backoff.
+     * <p>
+     * The work must be safe to run more than once. Transactions started inside
+     * the work join the outer transaction, and are not retried on their own.
+     *
+     * @param <T>
+     * @param key
+     * @param isolation a Connection.TRANSACTION_* level
+     * @param work
+     *
+     * @return the result of the work
+     *
+     * @throws SQLException
+     */
+    public static <T> T inTransaction(String key, int isolation, ConnectionScope.Work<T> work) throws SQLException {
+        if (transactions.get().contains(key)) {
+            return work.run();
+        }
+        DataSourceEntry entry = datasources.get(key);
+        if (null == entry) {
+            throw new SQLException("Illegal operation on null connection");
+        }
+        TransactionCounters counters = entry.transactionCounters();
+        int retries = setting(key, Settings.TRANSACTION_RETRIES);
+
+        for (int attempt = 0;; attempt++) {
+            long start = System.nanoTime();
+            try {
+                T result = transaction(key, isolation, work);
+                counters.commits.increment();
+                return result;
+            } catch (SQLException | RuntimeException | Error e) {
+                if ((attempt >= retries) || !isRetryable(e)) {
+                    counters.failures.increment();
+                    throw e;
+                }
+                logger.debug("Transaction retry {} of {}, (key={}): {}", attempt + 1, retries, key, e.getMessage());
+                counters.retries.increment();
+                try {
+                    backoff(key, attempt);
+                } catch (SQLException interrupted) {
+                    counters.failures.increment();
+                    interrupted.addSuppressed(e);
+                    throw interrupted;
+                } finally {
+                    counters.wastedNanos.add(System.nanoTime() - start);
+                }
+            }
+        }
+    }
+
+    private static <T> T transaction(String key, int isolation, ConnectionScope.Work<T> work) throws SQLException {
+        try (ConnectionScope scope = scope(key)) {
+            Connection connection = scope.connection();
+            boolean autoCommit = connection.getAutoCommit();
+            int previousIsolation = connection.getTransactionIsolation();
+            transactions.get().add(key);
+            try {
+                if (isolation != previousIsolation) {
+                    connection.setTransactionIsolation(isolation);
+                }
+                connection.setAutoCommit(false);
+                T result = work.run();
+                connection.commit();
+                return result;
+            } catch (SQLException | RuntimeException | Error e) {
+                rollbackQuietly(key, connection, e);
+                throw e;
+            } finally {
+                transactions.get().remove(key);
+                restore(key, connection, autoCommit, previousIsolation);
+            }
+        }
+    }
+
+    private static void restore(String key, Connection connection, boolean autoCommit, int isolation) {
+        try {
+            if (!connection.isClosed()) {
+                connection.setAutoCommit(autoCommit);
+                if (connection.getTransactionIsolation() != isolation) {
+                    connection.setTransactionIsolation(isolation);
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Error restoring connection after transaction (sourceRef={}): {}", key, e);
+        }
+    }
+
+    /**
+     * Whether a failure, or an SQLException in its causes or chained
+     * exceptions, is a deadlock or serialization failure.
+     */
+    private static boolean isRetryable(Throwable e) {
+        Set<Throwable> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Throwable> pending = new ArrayDeque<>();
+        pending.push(e);
+        while (!pending.isEmpty()) {
+            Throwable t = pending.pop();
+            if (!seen.add(t)) {
+                continue;
+            }
+            if ((t instanceof SQLTransactionRollbackException)
+                    || ((t instanceof SQLException se) && RETRY_STATES.contains(se.getSQLState()))) {
+                return true;
+            }
+            if ((t instanceof SQLException se) && (null != se.getNextException())) {
+                pending.push(se.getNextException());
+            }
+            if (null != t.getCause()) {
+                pending.push(t.getCause());
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Wait a random time of up to the base delay, doubled per attempt.
+     */
+    private static void backoff(String key, int attempt) throws SQLException {
+        long base = setting(key, Settings.TRANSACTION_RETRY_DELAY);
+        long bound = base << Math.min(attempt, MAX_BACKOFF_SHIFT);
+        if (bound <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(bound + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted before transaction retry, (key=" + key + ")", e);
+        }
+    }
+
+    /**
+     * Transaction counters for the connection.
+     *
+     * @param key
+     *
+     * @return
+     */
+    public static TransactionStatistics transactionStatistics(String key) {
+        DataSourceEntry entry = datasources.get(key);
+        return (null != entry) ? entry.transactionCounters().statistics() : new TransactionStatistics(0, 0, 0, 0);
+    }
+
+    private static void rollbackQuietly(String key, Connection connection, Throwable cause) {
+        try {
+            if (!connection.isClosed() && !connection.getAutoCommit()) {
+                connection.rollback();
+            }
+        } catch (SQLException e) {
+            logger.error("Error rolling back connection scope (sourceRef={}): {}", key, e);
+            cause.addSuppressed(e);
+        }
+    }
+
+    /**
+     * Drop the current thread's connection maps when no connections are bound,
+     * so short-lived threads do not keep them. Writes that are still within
+     * their read-your-writes window are kept.
+     */
+    static void clearThread() {
+        if (threadLocalMap.get().isEmpty() && statementCaches.get().isEmpty() && transactions.get().isEmpty()) {
+            threadLocalMap.remove();
+            statementCaches.remove();
+            transactions.remove();
+            activityCount.remove();
+
+            Map<String, Long> writes = lastWrites.get();
+            writes.entrySet().removeIf(write -> !isInWindow(write.getKey(), write.getValue()));
+            if (writes.isEmpty()) {
+                lastWrites.remove();
+            }
+        }
+    }
+
+    /**
+     * Prepare a statement on the connection bound to the current thread. The
+     * statement is taken from the connection's statement cache when
+     * {@link Settings#STATEMENT_CACHE_SIZE} is set.
+     *
+     * @param key
+     * @param sql
+     *
+     * @return
+     *
+     * @throws SQLException
+     */
+    public static PreparedStatement statement(String key, String sql) throws SQLException {
+        return statement(key, sql, Statement.NO_GENERATED_KEYS, null);
+    }
+
+    /**
+     * Prepare a statement that returns generated keys, on the connection bound
+     * to the current thread.
+     *
+     * @param key
+     * @param sql
+     * @param autoGeneratedKeys Statement.RETURN_GENERATED_KEYS or
+     *                          Statement.NO_GENERATED_KEYS
+     *
+     * @return
+     *
+     * @throws SQLException
+     */
+    public static PreparedStatement statement(String key, String sql, int autoGeneratedKeys) throws SQLException {
+        return statement(key, sql, autoGeneratedKeys, null);
+    }
+
+    /**
+     * Prepare a statement that returns the named key columns, on the
+     * connection bound to the current thread.
+     *
+     * @param key
+     * @param sql
+     * @param columnNames
+     *
+     * @return
+     *
+     * @throws SQLException
+     */
+    public static PreparedStatement statement(String key, String sql, String[] columnNames) throws SQLException {
+        return statement(key, sql, Statement.NO_GENERATED_KEYS, columnNames);
+    }
+
+    private static PreparedStatement statement(String key, String sql, int autoGeneratedKeys, String[] columnNames) throws SQLException {
+        Connection connection = connection(key);
+        int cacheSize = setting(key, Settings.STATEMENT_CACHE_SIZE);
+        if (cacheSize > 0) {
+            StatementCache cache = statementCaches.get().computeIfAbsent(key,
+                    k -> new StatementCache(cacheSize, datasources.get(k).statementCounters()));
+            return cache.prepare(connection, sql, autoGeneratedKeys, columnNames);
+        }
+
+        if (null != columnNames) {
+            return connection.prepareStatement(sql, columnNames);
+        }
+        if (autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS) {
+            return connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+        }
+        return connection.prepareStatement(sql);
+    }
+
     /**
      * Commit the connection.
      *
@@ -215,14 +810,31 @@ public class Connector {
     }
 
     /**
-     * Close connection and remove it from thie current thread.
+     * Close connection and remove it from thie current thread, along with the
+     * thread's connections to its replicas.
      *
      * @param key
      */
     public static void close(String key) {
+        closeConnection(key);
+        DataSourceEntry entry = datasources.get(key);
+        if ((null != entry) && (null != entry.replicas())) {
+            for (String replica : entry.replicas().keys) {
+                closeConnection(replica);
+            }
+        }
+    }
+
+    private static void closeConnection(String key) {
         if (!active()) {
             return;
         }
+        // Close cached statements before the connection
+        StatementCache cache = statementCaches.get().remove(key);
+        if (null != cache) {
+            cache.close();
+        }
+
         // Remove it from the thread
         threadLocalMap.get().computeIfPresent(key, (k, v) -> {
             // Close it
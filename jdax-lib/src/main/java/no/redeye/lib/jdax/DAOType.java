@@ -1,18 +1,21 @@
 package no.redeye.lib.jdax;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.lang.reflect.RecordComponent;
+import java.io.IOException;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.stream.Stream;
+import no.redeye.lib.jdax.types.CacheStatistics;
+import no.redeye.lib.jdax.types.ColumnarResult;
+import no.redeye.lib.jdax.types.Columns;
 import no.redeye.lib.jdax.types.Identities;
 import no.redeye.lib.jdax.types.QueryInputs;
 import no.redeye.lib.jdax.types.InsertResults;
@@ -30,8 +33,6 @@ public class DAOType {
 
     protected static Logger logger = LogManager.getLogger("apiLogger");
 
-    private final Pattern SQL_STATEMENT_PARAM_MARKERS = Pattern.compile(",?[ ]*'?#[a-zA-Z0-9_\\-.: ]*'?|,?[ ]*\\?{2}|,?[ ]*\\?");
-
     private final String DS_NAME;
 
     /**
@@ -43,6 +44,31 @@ public class DAOType {
         DS_NAME = datasourceName;
     }
 
+    /**
+     * Hit/miss counters of the parsed SQL statement cache shared by all
+     * DAOType instances.
+     *
+     * @return
+     */
+    public static CacheStatistics templateCacheStatistics() {
+        return SQLTemplate.statistics();
+    }
+
+    /**
+     * Parse the SQL statement into a reusable query handle. The handle skips
+     * statement parsing on every call, and keeps the column metadata of its
+     * first select for later executions.
+     *
+     * @param sql
+     *
+     * @return
+     *
+     * @throws SQLException
+     */
+    public PreparedQuery prepare(String sql) throws SQLException {
+        return new PreparedQuery(this, sql, SQLTemplate.of(sql));
+    }
+
     /**
      * Execute select query with no bind values.
      * <p>
@@ -75,8 +101,28 @@ public class DAOType {
      * @throws SQLException
      */
     public ResultRows select(VO vo, String sql, Object[]... ins) throws SQLException {
-        Object[] values = fields(vo);
-        return select(values, sql, ins);
+        logger.debug("INQ: {}", sql);
+        return select(SQLTemplate.of(sql).forRecord(vo), fields(vo), ins, null);
+    }
+
+    /**
+     * Execute select query with named parameters.
+     * <p>
+     * <
+     * pre>select from something where thing = :thing and another in (??)</pre>
+     *
+     * @param params values by parameter name
+     * @param sql
+     * @param ins
+     *
+     * @return
+     *
+     * @throws SQLException
+     */
+    public ResultRows select(Map<String, ?> params, String sql, Object[]... ins) throws SQLException {
+        logger.debug("INQ: {}", sql);
+        SQLTemplate template = SQLTemplate.of(sql);
+        return select(template.forMap(), template.mapValues(params), ins, null);
     }
 
     /**
@@ -109,8 +155,85 @@ public class DAOType {
      * @throws SQLException
      */
     public ResultRows select(Object[] values, String sql, Object[]... ins) throws SQLException {
-        QueryInputs qi = buildQueryInputs(values, ins, sql);
-        return executeQuery(qi);
+        logger.debug("INQ: {}", sql);
+        return select(SQLTemplate.of(sql).positional(), values, ins, null);
+    }
+
+    /**
+     * Stream the results of a select query as Java records.
+     *
+     * @param <T>
+     * @param type
+     * @param sql
+     * @param ins
+     *
+     * @return
+     *
+     * @throws SQLException
+     */
+    public <T> Stream<T> stream(Class<T> type, String sql, Object[]... ins) throws SQLException {
+        return stream(type, (Object[]) null, sql, ins);
+    }
+
+    /**
+     * Stream the results of a select query with provided values as Java
+     * records. The stream is lazy, and must be consumed on this thread. The
+     * result set and statement are closed when the stream is closed or fully
+     * consumed, and so is the thread's connection when
+     * Features.STREAM_CLOSES_CONNECTION is enabled.
+     *
+     * @param <T>
+     * @param type
+     * @param values
+     * @param sql
+     * @param ins
+     *
+     * @return
+     *
+     * @throws SQLException
+     */
+    public <T> Stream<T> stream(Class<T> type, Object[] values, String sql, Object[]... ins) throws SQLException {
+        ResultRows rows = select(values, sql, ins);
+        if (Connector.enabled(DS_NAME, Features.STREAM_CLOSES_CONNECTION)) {
+            rows.onClose(() -> Connector.close(DS_NAME));
+        }
+        return rows.stream(type);
+    }
+
+    /**
+     * Read the results of a select query into column arrays.
+     *
+     * @param sql
+     * @param ins
+     *
+     * @return
+     *
+     * @throws SQLException
+     */
+    public ColumnarResult columnar(String sql, Object[]... ins) throws SQLException {
+        return columnar((Object[]) null, sql, ins);
+    }
+
+    /**
+     * Read the results of a select query with provided values into column
+     * arrays. The result set and statement are closed before this method
+     * returns. The arrays are sized from the fetch size, see
+     * Settings.FETCH_SIZE.
+     *
+     * @param values
+     * @param sql
+     * @param ins
+     *
+     * @return
+     *
+     * @throws SQLException
+     */
+    public ColumnarResult columnar(Object[] values, String sql, Object[]... ins) throws SQLException {
+        try (ResultRows rows = select(values, sql, ins)) {
+            return rows.columnar();
+        } catch (IOException e) {
+            throw new SQLException(e);
+        }
     }
 
     /**
@@ -129,8 +252,7 @@ public class DAOType {
      */
     @SafeVarargs
     public final InsertResults insertOne(VO clazz, String sql, String... returnFields) throws SQLException {
-        Object[] values = fields(clazz);
-        return insertOne(values, sql, returnFields);
+        return write(() -> executeInsert(bound(clazz, null, sql), returnFields));
     }
 
     /**
@@ -150,8 +272,7 @@ public class DAOType {
      */
     @SafeVarargs
     public final InsertResults insertOne(Object[] values, String sql, String... returnFields) throws SQLException {
-        QueryInputs qi = buildQueryInputs(values, null, sql);
-        return executeInsert(qi, returnFields);
+        return write(() -> executeInsert(bound(values, sql), returnFields));
     }
 
     /**
@@ -167,8 +288,23 @@ public class DAOType {
      */
     @SafeVarargs
     public final InsertResults insert(VO clazz, String sql, String... returnFields) throws SQLException {
-        Object[] values = fields(clazz);
-        return insert(values, sql, returnFields);
+        return write(() -> executeInsert(bound(clazz, null, sql), returnFields));
+    }
+
+    /**
+     * Execute insert statement with named parameters.
+     *
+     * @param params       values by parameter name
+     * @param sql
+     * @param returnFields
+     *
+     * @return number of inserted rows
+     *
+     * @throws SQLException
+     */
+    @SafeVarargs
+    public final InsertResults insert(Map<String, ?> params, String sql, String... returnFields) throws SQLException {
+        return write(() -> executeInsert(bound(params, sql), returnFields));
     }
 
     /**
@@ -184,8 +320,83 @@ public class DAOType {
      */
     @SafeVarargs
     public final InsertResults insert(Object[] values, String sql, String... returnFields) throws SQLException {
-        QueryInputs qi = buildQueryInputs(values, null, sql);
-        return executeInsert(qi, returnFields);
+        return write(() -> executeInsert(bound(values, sql), returnFields));
+    }
+
+    /**
+     * Execute insert statement for many records, using JDBC batches. The
+     * statement is parsed and prepared once, and rows are sent to the database
+     * every batchSize rows.
+     * <p>
+     * When Settings.INSERT_ROWS_PER_STATEMENT is set for the datasource,
+     * single-row VALUES inserts are rewritten to multi-row VALUES statements
+     * instead, and batchSize is not used.
+     *
+     * @param records
+     * @param sql
+     * @param batchSize    number of rows per executeBatch() call
+     * @param returnFields field name(s) whose value(s) will be returned as
+     *                     identity fields
+     *
+     * @return per-row insert counts, and identities of all inserted rows if
+     *         generated keys are requested
+     *
+     * @throws SQLException BatchUpdateException when a batch fails, with
+     *                      the update counts of the rows sent before it.
+     *                      Those rows are not rolled back outside a
+     *                      transaction.
+     */
+    @SafeVarargs
+    public final InsertResults insertBatch(List<? extends VO> records, String sql, int batchSize, String... returnFields) throws SQLException {
+        Object[][] rows = fields(records);
+        return write(() -> insertBatch(recordTemplate(batchTemplate(sql, rows, batchSize), records), rows, batchSize, returnFields));
+    }
+
+    /**
+     * Execute insert statement for many rows of bind values, using JDBC
+     * batches. The statement is parsed and prepared once, and rows are sent to
+     * the database every batchSize rows.
+     * <p>
+     * When Settings.INSERT_ROWS_PER_STATEMENT is set for the datasource,
+     * single-row VALUES inserts are rewritten to multi-row VALUES statements
+     * instead, and batchSize is not used.
+     *
+     * @param rows
+     * @param sql
+     * @param batchSize    number of rows per executeBatch() call
+     * @param returnFields field name(s) whose value(s) will be returned as
+     *                     identity fields
+     *
+     * @return per-row insert counts, and identities of all inserted rows if
+     *         generated keys are requested
+     *
+     * @throws SQLException BatchUpdateException when a batch fails, with
+     *                      the update counts of the rows sent before it.
+     *                      Those rows are not rolled back outside a
+     *                      transaction.
+     */
+    @SafeVarargs
+    public final InsertResults insertBatch(Object[][] rows, String sql, int batchSize, String... returnFields) throws SQLException {
+        return write(() -> insertBatch(batchTemplate(sql, rows, batchSize).positional(), rows, batchSize, returnFields));
+    }
+
+    private InsertResults insertBatch(SQLTemplate template, Object[][] rows, int batchSize, String[] returnFields) throws SQLException {
+        boolean isReturningGeneratedKeys = isReturningGeneratedKeys(returnFields);
+        if (rows.length == 0) {
+            return new InsertResults(isReturningGeneratedKeys ? new Identities.Builder().build() : null, new int[0]);
+        }
+
+        Identities.Builder identities = isReturningGeneratedKeys ? new Identities.Builder() : null;
+        int rowsPerStatement = Connector.setting(DS_NAME, Settings.INSERT_ROWS_PER_STATEMENT);
+        int[] counts;
+        if ((rowsPerStatement > 0) && template.multiRowInsert().isSupported()) {
+            counts = executeMultiRow(template, rows, rowsPerStatement, returnFields, identities);
+        } else {
+            String statement = template.sql();
+            logger.debug("SQL: {}", statement);
+            counts = executeBatch(insertStatement(statement, returnFields), template, rows, batchSize, identities);
+        }
+        return new InsertResults(isReturningGeneratedKeys ? identities.build() : null, counts);
     }
 
     /**
@@ -223,8 +434,25 @@ public class DAOType {
      * @throws SQLException
      */
     public UpdateResults update(VO clazz, Object[] wheres, String sql, Object[]... ins) throws SQLException {
-        Object[] values = fields(clazz);
-        return update(values, wheres, sql, ins);
+        return write(() -> executeUpdate(bound(clazz, wheres, sql), ins));
+    }
+
+    /**
+     * Update table using named parameters.
+     * <p>
+     * <
+     * pre>update something set thing1 = :thing1 where another in (??)</pre>
+     *
+     * @param params values by parameter name
+     * @param sql
+     * @param ins
+     *
+     * @return updated rows count
+     *
+     * @throws SQLException
+     */
+    public UpdateResults update(Map<String, ?> params, String sql, Object[]... ins) throws SQLException {
+        return write(() -> executeUpdate(bound(params, sql), ins));
     }
 
     /**
@@ -242,8 +470,7 @@ public class DAOType {
      * @throws SQLException
      */
     public UpdateResults update(Object[] values, String sql, Object[]... ins) throws SQLException {
-        QueryInputs qi = buildQueryInputs(values, null, ins, sql);
-        return executeUpdate(qi);
+        return write(() -> executeUpdate(bound(values, null, sql), ins));
     }
 
     /**
@@ -263,153 +490,471 @@ public class DAOType {
      * @throws SQLException
      */
     public UpdateResults update(Object[] values, Object[] wheres, String sql, Object[]... ins) throws SQLException {
-        QueryInputs qi = buildQueryInputs(values, wheres, ins, sql);
-        return executeUpdate(qi);
+        return write(() -> executeUpdate(bound(values, wheres, sql), ins));
     }
 
-    private QueryInputs buildQueryInputs(Object[] values, Object[] wheres, Object[][] ins, String sql) throws SQLException {
+    /**
+     * Execute update statement for many records, using JDBC batches. The
+     * statement is parsed and prepared once, and rows are sent to the database
+     * every batchSize rows. IN clauses (??) are not supported in batches.
+     *
+     * @param records
+     * @param sql
+     * @param batchSize number of rows per executeBatch() call
+     *
+     * @return per-row update counts
+     *
+     * @throws SQLException BatchUpdateException when a batch fails, with
+     *                      the update counts of the rows sent before it.
+     *                      Those rows are not rolled back outside a
+     *                      transaction.
+     */
+    public UpdateResults updateBatch(List<? extends VO> records, String sql, int batchSize) throws SQLException {
+        Object[][] rows = fields(records);
+        return write(() -> updateBatch(recordTemplate(batchTemplate(sql, rows, batchSize), records), rows, batchSize));
+    }
+
+    /**
+     * Execute update statement for many rows of bind values, using JDBC
+     * batches. The statement is parsed and prepared once, and rows are sent to
+     * the database every batchSize rows. IN clauses (??) are not supported in
+     * batches.
+     *
+     * @param rows
+     * @param sql
+     * @param batchSize number of rows per executeBatch() call
+     *
+     * @return per-row update counts
+     *
+     * @throws SQLException BatchUpdateException when a batch fails, with
+     *                      the update counts of the rows sent before it.
+     *                      Those rows are not rolled back outside a
+     *                      transaction.
+     */
+    public UpdateResults updateBatch(Object[][] rows, String sql, int batchSize) throws SQLException {
+        return write(() -> updateBatch(batchTemplate(sql, rows, batchSize).positional(), rows, batchSize));
+    }
+
+    private UpdateResults updateBatch(SQLTemplate template, Object[][] rows, int batchSize) throws SQLException {
+        if (rows.length == 0) {
+            return new UpdateResults(new int[0]);
+        }
+
+        String statement = template.sql();
+        logger.debug("SQL: {}", statement);
+        int[] counts = executeBatch(Connector.statement(DS_NAME, statement), template, rows, batchSize, null);
+        return new UpdateResults(counts);
+    }
+
+    /**
+     * Template and values of a write statement, rendered when it is executed.
+     */
+    private record Bound(SQLTemplate template, Object[] values) {
+
+    }
+
+    private Bound bound(Object[] values, Object[] wheres, String sql) throws SQLException {
         if (null != values) {
             if (null != wheres) {
                 // Merge all values
                 Object[] allValues = new Object[values.length + wheres.length];
                 System.arraycopy(values, 0, allValues, 0, values.length);
                 System.arraycopy(wheres, 0, allValues, values.length, wheres.length);
-                return buildQueryInputs(allValues, ins, sql);
+                return bound(allValues, sql);
             }
-            return buildQueryInputs(values, ins, sql);
+            return bound(values, sql);
         }
-        return buildQueryInputs(wheres, ins, sql);
+        return bound(wheres, sql);
+    }
+
+    private Bound bound(Object[] wheres, String sql) throws SQLException {
+        logger.debug("INQ: {}", sql);
+        return new Bound(SQLTemplate.of(sql).positional(), wheres);
     }
 
-    private QueryInputs buildQueryInputs(Object[] wheres, Object[][] ins, String sql) throws SQLException {
-        if (null == sql) {
-            throw new SQLException("Query statement is cannot be null");
+    private Bound bound(VO vo, Object[] wheres, String sql) throws SQLException {
+        SQLTemplate template = SQLTemplate.of(sql);
+        if (!template.isNamed()) {
+            return bound(fields(vo), wheres, sql);
         }
+        if (null != wheres) {
+            throw new SQLException("Query statement has named parameters, where values cannot be provided separately");
+        }
+        logger.debug("INQ: {}", sql);
+        return new Bound(template.forRecord(vo), fields(vo));
+    }
 
-        StringBuilder bigQuery = new StringBuilder();
-        List<Object> allValues = new ArrayList();
+    private Bound bound(Map<String, ?> params, String sql) throws SQLException {
+        logger.debug("INQ: {}", sql);
+        SQLTemplate template = SQLTemplate.of(sql);
+        return new Bound(template.forMap(), template.mapValues(params));
+    }
 
-        // Find all #, ? and ?? in query, then rebuild the final wheres array.
-        // ? params are copied from the values input array,
-        // ?? gets expanded to multiple comma-separated ?
-        Matcher matcher = SQL_STATEMENT_PARAM_MARKERS.matcher(sql);
+    /**
+     * Render and execute a write statement. IN clause strategies are released
+     * once the statement has executed, as it reads the tables they load.
+     */
+    private <T> T execute(SQLTemplate template, Object[] values, Object[][] ins, Execution<T> execution) throws SQLException {
+        InClauses inClauses = inClauses(DS_NAME, template, ins);
+        try {
+            return execution.run(template.render(values, inClauses.ins(), Connector.setting(DS_NAME, Settings.IN_CLAUSE_BUCKETS), inClauses.replacements()));
+        } finally {
+            inClauses.release();
+        }
+    }
 
-        int queryBuilderIndex = 0;
-        int valuesSrcIndex = 0;
-        int insArrayIndex = 0;
-        boolean isFirstParam = true;
+    @FunctionalInterface
+    private interface Execution<T> {
 
-        logger.debug("INQ: {}" , sql);
-        while (matcher.find()) {
-            bigQuery.append(sql.substring(queryBuilderIndex, matcher.start()));
+        T run(QueryInputs qi) throws SQLException;
+    }
 
-            String match = sql.substring(matcher.start(), matcher.end());
+    /**
+     * Execute select query. Queries that exceed
+     * Settings.IN_CLAUSE_MAX_PARAMETERS are executed in several statements,
+     * each with a part of the largest IN clause. Datasources with replicas
+     * read from the replica chosen by Connector, until the rows are closed.
+     *
+     * @param template
+     * @param values
+     * @param ins
+     * @param columns  Column metadata from an earlier execution, or null
+     *
+     * @return
+     *
+     * @throws SQLException
+     */
+    ResultRows select(SQLTemplate template, Object[] values, Object[][] ins, Columns columns) throws SQLException {
+        PendingSelect select = prepareSelect(template, values, ins, columns);
+        try {
+            select.execute();
+        } catch (SQLException | RuntimeException e) {
+            select.cancel(e);
+            throw e;
+        }
+        return select.rows();
+    }
 
-            // Query reconstruction flags
-            boolean prependComma = match.startsWith(",");
-            boolean isReplaceClause = match.replaceAll(",", "").trim().length() > 2;
-            boolean isInClause = match.replaceAll(",", "").trim().equals("??");
-            boolean isSkipClause = match.replaceAll(",", "").trim().equals("#");
+    /**
+     * Prepare and bind a select on the current thread, without executing it.
+     * The read key is acquired and the connection is borrowed as for
+     * {@link #select(SQLTemplate, Object[], Object[][], Columns)}.
+     *
+     * @param template
+     * @param values
+     * @param ins
+     * @param columns  Column metadata from an earlier execution, or null
+     *
+     * @return
+     *
+     * @throws SQLException
+     */
+    PendingSelect prepareSelect(SQLTemplate template, Object[] values, Object[][] ins, Columns columns) throws SQLException {
+        String key = Connector.acquireRead(DS_NAME);
+        ConnectionScope scope = null;
+        try {
+            if (isBorrowing(key)) {
+                scope = Connector.scope(key);
+            }
+            return query(key, scope, template, values, ins, columns);
+        } catch (SQLException | RuntimeException e) {
+            if (null != scope) {
+                scope.close();
+            }
+            Connector.releaseRead(DS_NAME, key);
+            throw e;
+        }
+    }
 
-            if (isInClause || isSkipClause) {
-                prependComma = false;
+    private PendingSelect query(String key, ConnectionScope scope, SQLTemplate template, Object[] values, Object[][] ins, Columns columns) throws SQLException {
+        int bucketStep = Connector.setting(DS_NAME, Settings.IN_CLAUSE_BUCKETS);
+        int maxParameters = Connector.setting(DS_NAME, Settings.IN_CLAUSE_MAX_PARAMETERS);
+        boolean allowNulls = !Connector.enabled(DS_NAME, Features.NULL_RESULTS_DISABLED);
+        InClauses inClauses = inClauses(key, template, ins);
+        try {
+            List<Object[][]> chunks = template.split(values, inClauses.ins(), maxParameters, bucketStep, inClauses.replacements());
+            if (null == chunks) {
+                PreparedStatement ps = statement(key, template.render(values, inClauses.ins(), bucketStep, inClauses.replacements()));
+                return new PendingSelect(key, scope, inClauses, ps, (rs, st) -> new ResultRows(rs, st, columns, allowNulls));
             }
 
-            String clause = match.replaceAll(",", "").trim().substring((isReplaceClause ? 1 : 0));
+            logger.debug("IN clause split into {} statements", chunks.size());
+            ChunkedResultRows.Chunks prepare = chunk -> statement(key, template.render(values, chunk, bucketStep, inClauses.replacements()));
+            Iterator<Object[][]> remaining = chunks.iterator();
+            PreparedStatement first = prepare.prepare(remaining.next());
+            return new PendingSelect(key, scope, inClauses, first, (rs, st) -> ChunkedResultRows.of(rs, st, prepare, remaining, columns, allowNulls));
+        } catch (SQLException | RuntimeException e) {
+            inClauses.release();
+            throw e;
+        }
+    }
 
-            if (isInClause) {
-                if (null == ins) {
-                    throw new SQLException("Query statement contains an IN clause but no parameters have been provided");
-                }
-                if (insArrayIndex >= ins.length) {
-                    throw new SQLException("Query statement contains more IN clauses than the parameters provided (" + ins.length + ")");
+    /**
+     * A select that is prepared and bound on one thread, and may be executed
+     * on another. The connection stays bound to the preparing thread, which
+     * must also create, read and close the rows, or cancel the select.
+     */
+    final class PendingSelect {
+
+        private final String key;
+        private final ConnectionScope scope;
+        private final InClauses inClauses;
+        private final PreparedStatement statement;
+        private final RowsFactory factory;
+        private ResultSet resultSet;
+
+        private PendingSelect(String key, ConnectionScope scope, InClauses inClauses, PreparedStatement statement, RowsFactory factory) {
+            this.key = key;
+            this.scope = scope;
+            this.inClauses = inClauses;
+            this.statement = statement;
+            this.factory = factory;
+        }
+
+        /**
+         * Execute the query. May be called on any thread.
+         *
+         * @throws SQLException
+         */
+        void execute() throws SQLException {
+            resultSet = statement.executeQuery();
+        }
+
+        /**
+         * Rows of the executed query. The rows release the IN clause
+         * strategies, the read key and the borrowed connection when closed,
+         * and are detached when Features.DETACHED_RESULTS is enabled.
+         *
+         * @return
+         *
+         * @throws SQLException
+         */
+        ResultRows rows() throws SQLException {
+            ResultRows rows;
+            try {
+                rows = factory.of(resultSet, statement);
+            } catch (SQLException | RuntimeException e) {
+                cancel(e);
+                throw e;
+            }
+            rows.onClose(inClauses::release);
+            if (null != scope) {
+                rows.onClose(scope::close);
+            }
+            rows.onClose(() -> Connector.releaseRead(DS_NAME, key));
+            if (!Connector.enabled(DS_NAME, Features.DETACHED_RESULTS)) {
+                return rows;
+            }
+            try {
+                return rows.detach();
+            } catch (IOException e) {
+                throw new SQLException(e);
+            }
+        }
+
+        /**
+         * Close the statement, and release the IN clause strategies, the read
+         * key and the borrowed connection, when no rows will be created.
+         *
+         * @param cause exception that close failures are added to
+         */
+        void cancel(Exception cause) {
+            try (ResultSet rs = resultSet; PreparedStatement ps = statement) {
+            } catch (SQLException e) {
+                cause.addSuppressed(e);
+            } finally {
+                inClauses.release();
+                if (null != scope) {
+                    scope.close();
                 }
+                Connector.releaseRead(DS_NAME, key);
+            }
+        }
+    }
 
-                // Convert IN clause markers to statement params.
-                // In: (??) Out: (?, ?, ?)
-                allValues.addAll(Arrays.asList(ins[insArrayIndex]));
-                if (prependComma && !isFirstParam) {
-                    bigQuery.append(", ");
+    /**
+     * Creates the rows of an executed select.
+     */
+    @FunctionalInterface
+    private interface RowsFactory {
+
+        ResultRows of(ResultSet resultSet, PreparedStatement statement) throws SQLException;
+    }
+
+    /**
+     * Whether operations borrow a connection for their own length: the
+     * datasource has Features.CONNECTION_PER_STATEMENT, and the thread has no
+     * connection bound.
+     */
+    private boolean isBorrowing(String key) {
+        return Connector.enabled(DS_NAME, Features.CONNECTION_PER_STATEMENT) && !Connector.bound(key);
+    }
+
+    /**
+     * Run a write operation on the primary datasource, in its own connection
+     * scope when connections are borrowed per statement. A successful write
+     * starts the thread's read-your-writes window.
+     *
+     * @param <T>
+     * @param work
+     *
+     * @return
+     *
+     * @throws SQLException
+     */
+    <T> T write(ConnectionScope.Work<T> work) throws SQLException {
+        T result = isBorrowing(DS_NAME) ? Connector.inScope(DS_NAME, work) : work.run();
+        Connector.wrote(DS_NAME);
+        return result;
+    }
+
+    /**
+     * IN clause parameters, with the values of clauses that are handled by an
+     * InClauseStrategy replaced by the strategy's bind values.
+     */
+    private record InClauses(Object[][] ins, String[] replacements, InClauseStrategy[] strategies, Connection connection) {
+
+        /**
+         * Release the strategies of the replaced clauses.
+         */
+        void release() {
+            if (null == replacements) {
+                return;
+            }
+            for (int i = 0; i < replacements.length; i++) {
+                if (null != replacements[i]) {
+                    strategies[i].release(connection, replacements[i]);
                 }
-                bigQuery.append(expandInsParams(ins[insArrayIndex].length));
-                insArrayIndex++;
-                isFirstParam = false;
-            } else if (isReplaceClause) {
-                // In-line replacement of statement markers.
-                // In: (#sequence.nextval, ?) Out: (sequence.nextval, ?)
-                if (prependComma && !isFirstParam) {
-                    bigQuery.append(", ");
+            }
+        }
+    }
+
+    private InClauses inClauses(String key, SQLTemplate template, Object[][] ins) throws SQLException {
+        int inCount = template.inCount();
+        if ((inCount == 0) || (null == ins) || (ins.length < inCount)) {
+            return new InClauses(ins, null, null, null);
+        }
+
+        Connection connection = null;
+        Object[][] replaced = null;
+        String[] replacements = null;
+        InClauseStrategy[] strategies = null;
+        try {
+            for (int i = 0; i < inCount; i++) {
+                if ((null == ins[i]) || (ins[i].length == 0)) {
+                    continue;
                 }
-                bigQuery.append(clause);
-                valuesSrcIndex++;
-                isFirstParam = false;
-            } else if (isSkipClause) {
-                // Completely skip parameter
-                // In: (#, ?) Out: (?)
-                valuesSrcIndex++;
-            } else {
-                if (null != wheres) {
-                    if (wheres.length <= valuesSrcIndex) {
-                        throw new SQLException("Insufficient number of values provided for query params " + wheres.length + "/" + valuesSrcIndex);
-                    }
-                    // Copy params with no modifications.
-                    allValues.add(wheres[valuesSrcIndex]);
+                InClauseStrategy strategy = inClauseStrategy(ins[i].length);
+                if (null == strategy) {
+                    continue;
                 }
 
-                if (prependComma && !isFirstParam) {
-                    bigQuery.append(", ");
+                if (null == connection) {
+                    connection = Connector.connection(key);
+                }
+                List<Object> binds = new ArrayList<>();
+                String sql = strategy.apply(connection, i, ins[i], binds);
+                if (null != sql) {
+                    logger.debug("IN clause {} of {} values replaced by {}", i, ins[i].length, sql);
+                    if (null == replaced) {
+                        replaced = ins.clone();
+                        replacements = new String[inCount];
+                        strategies = new InClauseStrategy[inCount];
+                    }
+                    replaced[i] = binds.toArray();
+                    replacements[i] = sql;
+                    strategies[i] = strategy;
                 }
-                bigQuery.append(clause);
-                valuesSrcIndex++;
-                isFirstParam = false;
             }
-            queryBuilderIndex = matcher.end();
+        } catch (SQLException | RuntimeException e) {
+            new InClauses(replaced, replacements, strategies, connection).release();
+            throw e;
         }
+        return (null == replaced) ? new InClauses(ins, null, null, null) : new InClauses(replaced, replacements, strategies, connection);
+    }
 
-        if (queryBuilderIndex < sql.length()) {
-            // Now copy the rest of the query
-            bigQuery.append(sql.substring(queryBuilderIndex));
+    /**
+     * Strategy for an IN clause of the given size, or null to expand the
+     * values to individual parameters. Lists of at least
+     * Settings.IN_CLAUSE_TEMP_TABLE_SIZE values are loaded into a temporary
+     * table, and lists of at least Settings.IN_CLAUSE_ARRAY_SIZE values are
+     * bound as an array.
+     * <p>
+     * Override to use other strategies, for example for other SQL dialects.
+     *
+     * @param size
+     *
+     * @return
+     */
+    protected InClauseStrategy inClauseStrategy(int size) {
+        int tempTableSize = Connector.setting(DS_NAME, Settings.IN_CLAUSE_TEMP_TABLE_SIZE);
+        if ((tempTableSize > 0) && (size >= tempTableSize)) {
+            return InClauseStrategy.temporaryTable();
         }
-
-        Object[] values = allValues.toArray(new Object[0]);
-        return new QueryInputs(values, bigQuery.toString().replaceAll("\\(,", "("));
+        int arraySize = Connector.setting(DS_NAME, Settings.IN_CLAUSE_ARRAY_SIZE);
+        if ((arraySize > 0) && (size >= arraySize)) {
+            return InClauseStrategy.array();
+        }
+        return null;
     }
 
-    private ResultRows executeQuery(QueryInputs qi) throws SQLException {
+    private PreparedStatement statement(String key, QueryInputs qi) throws SQLException {
         logger.debug("SQL: {}", qi.sql());
 
-        PreparedStatement ps = Connector.connection(DS_NAME).prepareStatement(qi.sql());
+        PreparedStatement ps = Connector.statement(key, qi.sql());
+        int fetchSize = Connector.setting(DS_NAME, Settings.FETCH_SIZE);
+        if (fetchSize > 0) {
+            ps.setFetchSize(fetchSize);
+        }
         bind(ps, qi.values());
-        boolean allowNulls = !Connector.enabled(DS_NAME, Features.NULL_RESULTS_DISABLED);
-        return new ResultRows(ps.executeQuery(), ps, allowNulls);
+        return ps;
     }
 
-    private InsertResults executeInsert(QueryInputs qi, String[] fields) throws SQLException {
-        logger.debug("SQL: {}", qi.sql());
-        boolean isReturningGeneratedKeys = true;
-        PreparedStatement ps;
+    private InsertResults executeInsert(Bound bound, String[] fields) throws SQLException {
+        return executeInsert(bound.template(), bound.values(), fields);
+    }
 
-        if ((null != fields) && (fields.length > 0) && (null != fields[0]) && (!fields[0].isBlank())) {
+    InsertResults executeInsert(SQLTemplate template, Object[] values, String[] fields) throws SQLException {
+        return execute(template, values, null, qi -> {
+            logger.debug("SQL: {}", qi.sql());
+            PreparedStatement ps = insertStatement(qi.sql(), fields);
+            return query(ps, qi, !isReturningGeneratedKeys(fields));
+        });
+    }
+
+    private boolean hasReturnFields(String[] fields) {
+        return (null != fields) && (fields.length > 0) && (null != fields[0]) && (!fields[0].isBlank());
+    }
+
+    private boolean isReturningGeneratedKeys(String[] fields) {
+        return hasReturnFields(fields) || Connector.enabled(DS_NAME, Features.USE_GENERATED_KEYS_FLAG);
+    }
+
+    private PreparedStatement insertStatement(String sql, String[] fields) throws SQLException {
+        if (hasReturnFields(fields)) {
             // Explicit column names requested
-            ps = Connector.connection(DS_NAME).prepareStatement(qi.sql(), fields);
+            return Connector.statement(DS_NAME, sql, fields);
         } else if (Connector.enabled(DS_NAME, Features.USE_GENERATED_KEYS_FLAG)) {
             // Generic generated keys
-            ps = Connector.connection(DS_NAME).prepareStatement(qi.sql(), Statement.RETURN_GENERATED_KEYS);
-        } else {
-            ps = Connector.connection(DS_NAME).prepareStatement(qi.sql());
-            isReturningGeneratedKeys = false;
+            return Connector.statement(DS_NAME, sql, Statement.RETURN_GENERATED_KEYS);
         }
-        return query(ps, qi, !isReturningGeneratedKeys);
+        return Connector.statement(DS_NAME, sql);
     }
 
-    private UpdateResults executeUpdate(QueryInputs qi) throws SQLException {
-        logger.debug("SQL: {}", qi.sql());
-        boolean returnCount = true;
+    private UpdateResults executeUpdate(Bound bound, Object[][] ins) throws SQLException {
+        return executeUpdate(bound.template(), bound.values(), ins);
+    }
+
+    UpdateResults executeUpdate(SQLTemplate template, Object[] values, Object[][] ins) throws SQLException {
+        return execute(template, values, ins, qi -> {
+            logger.debug("SQL: {}", qi.sql());
+            boolean returnCount = true;
 
-        PreparedStatement ps = Connector.connection(DS_NAME).prepareStatement(qi.sql());
+            PreparedStatement ps = Connector.statement(DS_NAME, qi.sql());
 
-        InsertResults result = query(ps, qi, returnCount);
-        return new UpdateResults(result.count());
+            InsertResults result = query(ps, qi, returnCount);
+            return new UpdateResults(result.count());
+        });
     }
 
     private InsertResults query(PreparedStatement ps, QueryInputs qi, boolean returnCount) throws SQLException {
@@ -421,34 +966,151 @@ public class DAOType {
             if (returnCount) {
                 return new InsertResults(updateCount);
             } else {
-                // Retrieve the row identities
-                logger.debug("Retrieve row identities");
-                try (ResultSet keys = ps.getGeneratedKeys()) {
-                    List<Object> identities = new ArrayList();
-                    if ((null != keys) && (keys.next())) {
-                        logger.debug("Row identities count = {}", keys.getMetaData().getColumnCount());
-                        for (int i = 1; i <= keys.getMetaData().getColumnCount(); i++) {
-                            Object o = keys.getObject(i);
-                            logger.debug("Column identity value = {}", o);
-                            if (null != o) {
-                                identities.add(keys.getMetaData().getColumnType(i));
-                                identities.add(keys.getObject(i));
-                            }
+                Identities.Builder identities = new Identities.Builder();
+                readIdentities(ps, identities, true);
+                return new InsertResults(identities.build());
+            }
+        }
+    }
+
+    /**
+     * Send rows to the database in batches of batchSize rows, using a single
+     * statement. When a batch fails, the rows queued for it are cleared, and
+     * the failure is reported with the update counts of the rows sent before
+     * it.
+     *
+     * @param ps
+     * @param template
+     * @param rows
+     * @param batchSize
+     * @param identities generated keys of all rows are added to this builder,
+     *                   if not null
+     *
+     * @return per-row update counts
+     *
+     * @throws BatchUpdateException with the update counts of the rows sent
+     *                              before the failure
+     */
+    private int[] executeBatch(PreparedStatement ps, SQLTemplate template, Object[][] rows, int batchSize, Identities.Builder identities) throws SQLException {
+        int[] counts = new int[rows.length];
+        int sent = 0;
+        try (ps) {
+            try {
+                for (int i = 0; i < rows.length; i++) {
+                    bind(ps, template.bind(rows[i]));
+                    ps.addBatch();
+
+                    if ((i + 1 - sent == batchSize) || (i + 1 == rows.length)) {
+                        int[] batch = ps.executeBatch();
+                        logger.debug("Batch update counts: {}", batch.length);
+                        System.arraycopy(batch, 0, counts, sent, Math.min(batch.length, i + 1 - sent));
+                        sent = i + 1;
+
+                        if (null != identities) {
+                            readIdentities(ps, identities, true);
                         }
                     }
+                }
+            } catch (SQLException e) {
+                // Rows queued after the last executeBatch() are never sent
+                try {
+                    ps.clearBatch();
+                } catch (SQLException ce) {
+                    e.addSuppressed(ce);
+                }
+                throw new BatchUpdateException("Batch failed after " + sent + " of " + rows.length + " rows were sent: " + e.getMessage(),
+                        e.getSQLState(), e.getErrorCode(), Arrays.copyOf(counts, sent), e);
+            }
+        }
+        return counts;
+    }
 
-                    return new InsertResults(new Identities(identities));
+    /**
+     * Insert rows with multi-row VALUES statements. Row counts are only known
+     * per statement, so rows of a statement that inserted fewer rows than it
+     * was given are reported as Statement.SUCCESS_NO_INFO.
+     *
+     * @param template
+     * @param rows
+     * @param rowsPerStatement
+     * @param fields
+     * @param identities       generated keys of all rows are added to this
+     *                         builder, if not null
+     *
+     * @return per-row insert counts
+     *
+     * @throws SQLException
+     */
+    private int[] executeMultiRow(SQLTemplate template, Object[][] rows, int rowsPerStatement, String[] fields, Identities.Builder identities) throws SQLException {
+        MultiRowInsert insert = template.multiRowInsert();
+        int parameterCount = template.parameterCount();
+        int[] counts = new int[rows.length];
+
+        int sent = 0;
+        while (sent < rows.length) {
+            int chunk = MultiRowInsert.chunk(rows.length - sent, rowsPerStatement);
+            Object[] bindValues = new Object[chunk * parameterCount];
+            for (int i = 0; i < chunk; i++) {
+                System.arraycopy(template.bind(rows[sent + i]), 0, bindValues, i * parameterCount, parameterCount);
+            }
+
+            String statement = insert.sql(chunk);
+            logger.debug("SQL: {}", statement);
+            try (PreparedStatement ps = insertStatement(statement, fields)) {
+                bind(ps, bindValues);
+                int updateCount = ps.executeUpdate();
+                logger.debug("Update count: {}", updateCount);
+                Arrays.fill(counts, sent, sent + chunk, (updateCount == chunk) ? 1 : Statement.SUCCESS_NO_INFO);
+
+                if (null != identities) {
+                    readIdentities(ps, identities, true);
                 }
             }
+            sent += chunk;
         }
+        return counts;
     }
 
-    private String expandInsParams(int count) {
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < count; i++) {
-            sb.append(",?");
+    private SQLTemplate batchTemplate(String sql, Object[][] rows, int batchSize) throws SQLException {
+        if (null == rows) {
+            throw new SQLException("No rows provided for batch statement");
+        }
+        if (batchSize < 1) {
+            throw new SQLException("Batch size must be at least 1, was " + batchSize);
+        }
+        logger.debug("INQ: {}", sql);
+        return SQLTemplate.of(sql);
+    }
+
+    /**
+     * Template for binding the records of a batch. Statements with named
+     * parameters are resolved by the class of the first record, and all
+     * records must be of that class.
+     */
+    private SQLTemplate recordTemplate(SQLTemplate template, List<? extends VO> records) throws SQLException {
+        if (!template.isNamed() || records.isEmpty()) {
+            return template;
+        }
+        Class<?> type = null;
+        for (VO vo : records) {
+            if (null == vo) {
+                throw new SQLException("Batch records cannot be null for named parameters");
+            }
+            if (null == type) {
+                type = vo.getClass();
+            } else if (vo.getClass() != type) {
+                throw new SQLException("Batch records must all be of type " + type.getName() + ", found " + vo.getClass().getName());
+            }
+        }
+        return template.forRecord(type);
+    }
+
+    private void readIdentities(PreparedStatement ps, Identities.Builder identities, boolean allRows) throws SQLException {
+        // Retrieve the row identities
+        logger.debug("Retrieve row identities");
+        try (ResultSet keys = ps.getGeneratedKeys()) {
+            identities.add(keys, allRows);
         }
-        return sb.substring(1);
     }
 
     /**
@@ -483,48 +1145,39 @@ public class DAOType {
     }
 
     /**
-     * Extract all field values from the clazz record. The skipFields indices
-     * allows this method to drop ID fields from bind variables.
+     * Extract all field values from the clazz record. Accessors are looked up
+     * once per record class.
      *
      * @param clazz
-     * @param skipFields
      *
      * @return
      *
      * @throws SQLException
-     * @throws NoSuchFieldException
-     * @throws IllegalArgumentException
-     * @throws IllegalAccessException
-     * @throws NoSuchMethodException
-     * @throws InvocationTargetException
      */
-    private Object[] fields(VO clazz) throws SQLException {
+    Object[] fields(VO clazz) throws SQLException {
         if (null == clazz) {
             return null;
         }
-        Class classType = clazz.getClass();
-        RecordComponent[] rcs = classType.getRecordComponents();
-        if (null == rcs) {
-            throw new SQLException("Invalid VO, type must be a Java record");
-        }
-
-        try {
-            Object[] fields = new Object[rcs.length];
-
-            int fieldIndex = 0;
-            int skipIndex = 0;
-
-            for (int i = 0; i < rcs.length; i++) {
-                RecordComponent rc = rcs[i];
-                Field field = classType.getDeclaredField(rc.getAccessor().getName());
-                Method method = classType.getDeclaredMethod(field.getName(), (Class<?>[]) null);
+        return RecordFields.of(clazz.getClass()).values(clazz);
+    }
 
-                fields[i - skipIndex] = method.invoke(clazz, (Object[]) null);
-                fieldIndex++;
-            }
-            return fields;
-        } catch (NoSuchFieldException | IllegalArgumentException | IllegalAccessException | NoSuchMethodException | InvocationTargetException ex) {
-            throw new SQLException(ex);
+    /**
+     * Extract all field values from each record.
+     *
+     * @param records
+     *
+     * @return
+     *
+     * @throws SQLException
+     */
+    Object[][] fields(List<? extends VO> records) throws SQLException {
+        if (null == records) {
+            return null;
+        }
+        Object[][] rows = new Object[records.size()][];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = fields(records.get(i));
         }
+        return rows;
     }
 }
@@ -8,6 +8,9 @@ package no.redeye.lib.jdax;
  * {@link #AUTO_COMMIT_ENABLED}
  * {@link #AUTO_COMMIT_DISABLED}
  * {@link #READ_ONLY_MODE}
+ * {@link #STREAM_CLOSES_CONNECTION}
+ * {@link #DETACHED_RESULTS}
+ * {@link #CONNECTION_PER_STATEMENT}
  */
 public enum Features {
     /**
@@ -31,6 +34,22 @@ public enum Features {
     /**
      * Put connection in read-only mode
      */
-    READ_ONLY_MODE;
+    READ_ONLY_MODE,
+    /**
+     * Close the thread's connection when a stream from DAOType.stream() is
+     * closed or fully consumed
+     */
+    STREAM_CLOSES_CONNECTION,
+    /**
+     * Copy select results into memory and close the result set and statement
+     * before DAOType.select() returns, see ResultRows.detach()
+     */
+    DETACHED_RESULTS,
+    /**
+     * Borrow a connection for each DAOType operation, and return it to the
+     * pool when the operation completes, or when its ResultRows are closed.
+     * Threads that already have a connection bound keep using it
+     */
+    CONNECTION_PER_STATEMENT;
 
 }
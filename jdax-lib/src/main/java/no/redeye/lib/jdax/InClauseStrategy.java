@@ -0,0 +1,68 @@
+package no.redeye.lib.jdax;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * InClauseStrategy replaces the expansion of an IN clause (??) marker, for
+ * lists that are too large to bind as individual parameters.
+ * <p>
+ * DAOType picks a strategy per IN clause from the list size, see
+ * {@link DAOType#inClauseStrategy(int)}.
+ */
+public interface InClauseStrategy {
+
+    /**
+     * Prepare the IN clause values, and return the SQL that replaces the ??
+     * marker.
+     * <pre>
+     * In:  WHERE id IN (??)
+     * Out: WHERE id IN (SELECT * FROM UNNEST(?))
+     * </pre>
+     *
+     * @param connection connection the statement will be executed on
+     * @param index      IN clause index in the statement
+     * @param in         IN clause values
+     * @param binds      values to bind for the replacement SQL, in order
+     *
+     * @return replacement SQL, or null to expand the values as usual
+     *
+     * @throws SQLException
+     */
+    String apply(Connection connection, int index, Object[] in, List<Object> binds) throws SQLException;
+
+    /**
+     * Release what was prepared for the replacement SQL, when the statement
+     * that reads it is done: selects when their rows are closed, and other
+     * statements once they have executed. Called on the thread that called
+     * apply().
+     *
+     * @param connection connection the statement was executed on
+     * @param sql        replacement SQL returned by apply()
+     */
+    default void release(Connection connection, String sql) {
+    }
+
+    /**
+     * Bind the values as a single java.sql.Array parameter, for databases with
+     * UNNEST() support. The driver must support createArrayOf(). Lists of
+     * other types than integers, strings, decimals and UUIDs are expanded.
+     *
+     * @return
+     */
+    static InClauseStrategy array() {
+        return ArrayInClause.INSTANCE;
+    }
+
+    /**
+     * Load the values into a session temporary table, and select from it.
+     * Tables are declared with DECLARE GLOBAL TEMPORARY TABLE, as in Derby and
+     * DB2. Lists of other types than integers and strings are expanded.
+     *
+     * @return
+     */
+    static InClauseStrategy temporaryTable() {
+        return TemporaryTableInClause.INSTANCE;
+    }
+}
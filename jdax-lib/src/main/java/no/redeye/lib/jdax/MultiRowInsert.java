@@ -0,0 +1,155 @@
+package no.redeye.lib.jdax;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * MultiRowInsert rewrites a single-row insert statement into multi-row VALUES
+ * statements.
+ * <pre>
+ * In:  INSERT INTO t (a, b) VALUES (?, ?)
+ * Out: INSERT INTO t (a, b) VALUES (?, ?), (?, ?), (?, ?)
+ * </pre>
+ * Rows are split into chunks of the configured size, and the remainder into
+ * power-of-two chunks, so a template only has a few statement shapes. Shapes
+ * are built once and kept with the template.
+ */
+final class MultiRowInsert {
+
+    private static final MultiRowInsert UNSUPPORTED = new MultiRowInsert(null, null, null);
+
+    private final String prefix;
+    private final String row;
+    private final String suffix;
+    private final Map<Integer, String> shapes = new ConcurrentHashMap<>();
+
+    private MultiRowInsert(String prefix, String row, String suffix) {
+        this.prefix = prefix;
+        this.row = row;
+        this.suffix = suffix;
+    }
+
+    /**
+     * Locate the VALUES row of a rendered insert statement.
+     *
+     * @param sql
+     *
+     * @return
+     */
+    static MultiRowInsert of(String sql) {
+        int start = valuesRow(sql);
+        if (start < 0) {
+            return UNSUPPORTED;
+        }
+        int end = closingParenthesis(sql, start);
+        if (end < 0) {
+            return UNSUPPORTED;
+        }
+
+        // Statements that already insert several rows are left alone
+        int next = end + 1;
+        while ((next < sql.length()) && Character.isWhitespace(sql.charAt(next))) {
+            next++;
+        }
+        if ((next < sql.length()) && (sql.charAt(next) == ',')) {
+            return UNSUPPORTED;
+        }
+
+        return new MultiRowInsert(sql.substring(0, start), sql.substring(start, end + 1), sql.substring(end + 1));
+    }
+
+    /**
+     * Whether the statement is a single-row VALUES insert that can be
+     * rewritten.
+     *
+     * @return
+     */
+    boolean isSupported() {
+        return null != row;
+    }
+
+    /**
+     * Statement inserting the given number of rows.
+     *
+     * @param rows
+     *
+     * @return
+     */
+    String sql(int rows) {
+        return shapes.computeIfAbsent(rows, this::build);
+    }
+
+    /**
+     * Number of rows in the next statement, for the given remaining rows and
+     * maximum rows per statement.
+     *
+     * @param remaining
+     * @param rowsPerStatement
+     *
+     * @return
+     */
+    static int chunk(int remaining, int rowsPerStatement) {
+        if (remaining >= rowsPerStatement) {
+            return rowsPerStatement;
+        }
+        return Integer.highestOneBit(remaining);
+    }
+
+    private String build(int rows) {
+        StringBuilder sql = new StringBuilder(prefix.length() + suffix.length() + (rows * (row.length() + 2)));
+        sql.append(prefix).append(row);
+        for (int i = 1; i < rows; i++) {
+            sql.append(", ").append(row);
+        }
+        return sql.append(suffix).toString();
+    }
+
+    /**
+     * Index of the opening parenthesis following the VALUES keyword, skipping
+     * string literals, quoted identifiers and comments as SQLTemplate does.
+     */
+    private static int valuesRow(String sql) {
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            int literal = SQLTemplate.literalEnd(sql, i);
+            if (literal > i) {
+                i = literal;
+            } else if (sql.regionMatches(true, i, "VALUES", 0, 6)
+                    && ((i == 0) || !Character.isLetterOrDigit(sql.charAt(i - 1)))) {
+                int open = i + 6;
+                while ((open < length) && Character.isWhitespace(sql.charAt(open))) {
+                    open++;
+                }
+                if ((open < length) && (sql.charAt(open) == '(')) {
+                    return open;
+                }
+                i = open;
+            } else {
+                i++;
+            }
+        }
+        return -1;
+    }
+
+    private static int closingParenthesis(String sql, int open) {
+        int length = sql.length();
+        int depth = 0;
+        int i = open;
+        while (i < length) {
+            int literal = SQLTemplate.literalEnd(sql, i);
+            if (literal > i) {
+                i = literal;
+                continue;
+            }
+            char c = sql.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if ((c == ')') && (--depth == 0)) {
+                return i;
+            }
+            i++;
+        }
+        return -1;
+    }
+}
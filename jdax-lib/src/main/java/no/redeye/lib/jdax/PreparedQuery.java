@@ -0,0 +1,251 @@
+package no.redeye.lib.jdax;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import no.redeye.lib.jdax.types.Columns;
+import no.redeye.lib.jdax.types.InsertResults;
+import no.redeye.lib.jdax.types.QueryStatistics;
+import no.redeye.lib.jdax.types.ResultRows;
+import no.redeye.lib.jdax.types.UpdateResults;
+import no.redeye.lib.jdax.types.VO;
+
+/**
+ * PreparedQuery is a reusable handle for an SQL statement, created by
+ * {@link DAOType#prepare(String)}. The statement is parsed once, and the column
+ * metadata of the first select is kept for later selects.
+ * <p>
+ * Handles are immutable apart from their statistics and metadata cache, and are
+ * safe to share between threads.
+ */
+public final class PreparedQuery {
+
+    @FunctionalInterface
+    private interface Execution<T> {
+
+        T execute() throws SQLException;
+    }
+
+    private final DAOType dao;
+    private final String sql;
+    private final SQLTemplate template;
+
+    private volatile Columns columns;
+
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder elapsedNanos = new LongAdder();
+
+    PreparedQuery(DAOType dao, String sql, SQLTemplate template) {
+        this.dao = dao;
+        this.sql = sql;
+        this.template = template;
+    }
+
+    /**
+     * The SQL statement, as provided to DAOType.prepare().
+     *
+     * @return
+     */
+    public String sql() {
+        return sql;
+    }
+
+    /**
+     * Number of values expected by the statement, including values consumed by
+     * # and #tag markers.
+     *
+     * @return
+     */
+    public int valueCount() {
+        return template.valueCount();
+    }
+
+    /**
+     * Number of IN clauses (??) in the statement.
+     *
+     * @return
+     */
+    public int inCount() {
+        return template.inCount();
+    }
+
+    /**
+     * Column metadata of the first select, or null if the query has not been
+     * selected yet.
+     *
+     * @return
+     */
+    public Columns columns() {
+        return columns;
+    }
+
+    /**
+     * Execution counters for this query.
+     *
+     * @return
+     */
+    public QueryStatistics statistics() {
+        return new QueryStatistics(executions.sum(), failures.sum(), elapsedNanos.sum());
+    }
+
+    /**
+     * Execute select query with provided values and IN clause parameters.
+     *
+     * @param values
+     * @param ins
+     *
+     * @return
+     *
+     * @throws SQLException
+     */
+    public ResultRows select(Object[] values, Object[]... ins) throws SQLException {
+        return select(template.positional(), values, ins);
+    }
+
+    /**
+     * Execute select query with values from provided VO.
+     *
+     * @param vo
+     * @param ins
+     *
+     * @return
+     *
+     * @throws SQLException
+     */
+    public ResultRows select(VO vo, Object[]... ins) throws SQLException {
+        return select(template.forRecord(vo), dao.fields(vo), ins);
+    }
+
+    /**
+     * Execute select query with named parameter values.
+     *
+     * @param params
+     * @param ins
+     *
+     * @return
+     *
+     * @throws SQLException
+     */
+    public ResultRows select(Map<String, ?> params, Object[]... ins) throws SQLException {
+        return select(template.forMap(), template.mapValues(params), ins);
+    }
+
+    /**
+     * Execute insert statement with provided values.
+     *
+     * @param values
+     * @param returnFields field name(s) whose value(s) will be returned as
+     *                     identity fields
+     *
+     * @return
+     *
+     * @throws SQLException
+     */
+    public InsertResults insert(Object[] values, String... returnFields) throws SQLException {
+        return measure(() -> dao.write(() -> dao.executeInsert(template.positional(), values, returnFields)));
+    }
+
+    /**
+     * Execute insert statement with values from provided VO.
+     *
+     * @param vo
+     * @param returnFields field name(s) whose value(s) will be returned as
+     *                     identity fields
+     *
+     * @return
+     *
+     * @throws SQLException
+     */
+    public InsertResults insert(VO vo, String... returnFields) throws SQLException {
+        SQLTemplate resolved = template.forRecord(vo);
+        Object[] values = dao.fields(vo);
+        return measure(() -> dao.write(() -> dao.executeInsert(resolved, values, returnFields)));
+    }
+
+    /**
+     * Execute insert statement with named parameter values.
+     *
+     * @param params
+     * @param returnFields field name(s) whose value(s) will be returned as
+     *                     identity fields
+     *
+     * @return
+     *
+     * @throws SQLException
+     */
+    public InsertResults insert(Map<String, ?> params, String... returnFields) throws SQLException {
+        SQLTemplate resolved = template.forMap();
+        Object[] values = template.mapValues(params);
+        return measure(() -> dao.write(() -> dao.executeInsert(resolved, values, returnFields)));
+    }
+
+    /**
+     * Execute update statement with provided values and IN clause parameters.
+     *
+     * @param values
+     * @param ins
+     *
+     * @return updated rows count
+     *
+     * @throws SQLException
+     */
+    public UpdateResults update(Object[] values, Object[]... ins) throws SQLException {
+        return measure(() -> dao.write(() -> dao.executeUpdate(template.positional(), values, ins)));
+    }
+
+    /**
+     * Execute update statement with values from provided VO.
+     *
+     * @param vo
+     * @param ins
+     *
+     * @return updated rows count
+     *
+     * @throws SQLException
+     */
+    public UpdateResults update(VO vo, Object[]... ins) throws SQLException {
+        SQLTemplate resolved = template.forRecord(vo);
+        Object[] values = dao.fields(vo);
+        return measure(() -> dao.write(() -> dao.executeUpdate(resolved, values, ins)));
+    }
+
+    /**
+     * Execute update statement with named parameter values.
+     *
+     * @param params
+     * @param ins
+     *
+     * @return updated rows count
+     *
+     * @throws SQLException
+     */
+    public UpdateResults update(Map<String, ?> params, Object[]... ins) throws SQLException {
+        SQLTemplate resolved = template.forMap();
+        Object[] values = template.mapValues(params);
+        return measure(() -> dao.write(() -> dao.executeUpdate(resolved, values, ins)));
+    }
+
+    private ResultRows select(SQLTemplate resolved, Object[] values, Object[][] ins) throws SQLException {
+        return measure(() -> {
+            ResultRows rows = dao.select(resolved, values, ins, columns);
+            if (null == columns) {
+                columns = rows.columns();
+            }
+            return rows;
+        });
+    }
+
+    private <T> T measure(Execution<T> execution) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return execution.execute();
+        } catch (SQLException | RuntimeException e) {
+            failures.increment();
+            throw e;
+        } finally {
+            executions.increment();
+            elapsedNanos.add(System.nanoTime() - start);
+        }
+    }
+}
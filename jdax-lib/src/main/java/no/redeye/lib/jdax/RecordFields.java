@@ -0,0 +1,103 @@
+package no.redeye.lib.jdax;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.RecordComponent;
+import java.sql.SQLException;
+
+/**
+ * RecordFields extracts the component values of a record. Accessors are looked
+ * up once per record class and kept as method handles, so extracting values
+ * allocates the values array only.
+ */
+final class RecordFields {
+
+    private static final MethodType ACCESSOR = MethodType.methodType(Object.class, Object.class);
+
+    private static final ClassValue<RecordFields> FIELDS = new ClassValue<>() {
+        @Override
+        protected RecordFields computeValue(Class<?> type) {
+            return RecordFields.build(type);
+        }
+    };
+
+    private final String[] names;
+    private final MethodHandle[] accessors;
+    private final String error;
+
+    private RecordFields(String[] names, MethodHandle[] accessors, String error) {
+        this.names = names;
+        this.accessors = accessors;
+        this.error = error;
+    }
+
+    /**
+     * Extractor for a record class.
+     *
+     * @param type
+     *
+     * @return
+     *
+     * @throws SQLException if the type is not an accessible record
+     */
+    static RecordFields of(Class<?> type) throws SQLException {
+        RecordFields fields = FIELDS.get(type);
+        if (null != fields.error) {
+            throw new SQLException(fields.error);
+        }
+        return fields;
+    }
+
+    /**
+     * Component names, in declaration order.
+     *
+     * @return
+     */
+    String[] names() {
+        return names.clone();
+    }
+
+    /**
+     * Component values of a record, in declaration order.
+     *
+     * @param record
+     *
+     * @return
+     *
+     * @throws SQLException
+     */
+    Object[] values(Object record) throws SQLException {
+        Object[] values = new Object[accessors.length];
+        try {
+            for (int i = 0; i < accessors.length; i++) {
+                values[i] = (Object) accessors[i].invokeExact(record);
+            }
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new SQLException(t);
+        }
+        return values;
+    }
+
+    private static RecordFields build(Class<?> type) {
+        RecordComponent[] components = type.getRecordComponents();
+        if (null == components) {
+            return new RecordFields(null, null, "Invalid VO, type must be a Java record");
+        }
+
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+            String[] names = new String[components.length];
+            MethodHandle[] accessors = new MethodHandle[components.length];
+            for (int i = 0; i < components.length; i++) {
+                names[i] = components[i].getName();
+                accessors[i] = lookup.unreflect(components[i].getAccessor()).asType(ACCESSOR);
+            }
+            return new RecordFields(names, accessors, null);
+        } catch (IllegalAccessException e) {
+            return new RecordFields(null, null, "Invalid VO, record " + type.getName() + " is not accessible: " + e.getMessage());
+        }
+    }
+}
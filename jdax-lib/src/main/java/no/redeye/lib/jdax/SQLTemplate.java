@@ -0,0 +1,817 @@
+package no.redeye.lib.jdax;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import no.redeye.lib.jdax.types.CacheStatistics;
+import no.redeye.lib.jdax.types.QueryInputs;
+import no.redeye.lib.jdax.types.VO;
+
+/**
+ * SQLTemplate is the parsed form of an SQL statement. The statement is scanned
+ * once for #, ? and ?? markers, and kept as static SQL chunks separated by IN
+ * clause expansions, together with a bind plan that maps statement parameters
+ * to the caller's values.
+ * <p>
+ * Templates are immutable and shared between all DAOType instances through a
+ * bounded cache, so rendering a statement only walks the plan. Lookups do not
+ * lock. Each hit stamps the template with its time of use, and a full cache
+ * evicts the statements used longest ago.
+ * <p>
+ * Named :name markers are resolved once per record class, or once for maps,
+ * into a template whose bind plan indexes the record components or the map
+ * values directly. Statements with ? markers have no named markers, so
+ * colons in positional SQL, such as array slices a[1:n], are kept as they
+ * are.
+ */
+final class SQLTemplate {
+
+    private static final int CACHE_LIMIT = 1024;
+
+    // Statements evicted at once when the cache is full, so eviction scans are rare
+    private static final int EVICTION_BATCH = CACHE_LIMIT / 8;
+
+    private static final Map<String, SQLTemplate> CACHE = new ConcurrentHashMap<>();
+
+    private static final Object EVICTION_LOCK = new Object();
+
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+    private static final LongAdder evictions = new LongAdder();
+
+    // Bind plan marker for IN clauses, other entries are indices into the values array
+    private static final int IN_CLAUSE = -1;
+    // Bind plan markers for named parameters, NAMED - i for names[i]
+    private static final int NAMED = -2;
+
+    private final String sql;
+    private final String[] chunks;
+    private final int[] binds;
+    private final int parameterCount;
+    private final int requiredValues;
+    private final int staticLength;
+    private final String[] names;
+
+    private volatile long lastUsed;
+    private volatile MultiRowInsert multiRowInsert;
+    private volatile SQLTemplate mapTemplate;
+    private volatile SQLTemplate positional;
+    private final ClassValue<Resolved> recordTemplates;
+
+    /**
+     * Template resolved for a record class, or the reason it cannot be.
+     */
+    private record Resolved(SQLTemplate template, String error) {
+
+    }
+
+    private SQLTemplate(String sql, String[] chunks, int[] binds, int parameterCount, int requiredValues, String[] names) {
+        this.sql = sql;
+        this.chunks = chunks;
+        this.binds = binds;
+        this.parameterCount = parameterCount;
+        this.requiredValues = requiredValues;
+        this.names = names;
+        this.recordTemplates = (null == names) ? null : new ClassValue<>() {
+            @Override
+            protected Resolved computeValue(Class<?> type) {
+                try {
+                    return new Resolved(resolveRecord(type), null);
+                } catch (SQLException e) {
+                    return new Resolved(null, e.getMessage());
+                }
+            }
+        };
+
+        int length = 0;
+        for (String chunk : chunks) {
+            length += chunk.length();
+        }
+        this.staticLength = length;
+    }
+
+    /**
+     * Return the cached template for the SQL statement, parsing it on first
+     * use.
+     *
+     * @param sql
+     *
+     * @return
+     *
+     * @throws SQLException
+     */
+    static SQLTemplate of(String sql) throws SQLException {
+        if (null == sql) {
+            throw new SQLException("Query statement is cannot be null");
+        }
+
+        SQLTemplate template = CACHE.get(sql);
+        if (null != template) {
+            hits.increment();
+            template.lastUsed = System.nanoTime();
+            return template;
+        }
+
+        misses.increment();
+        template = parse(sql);
+        template.lastUsed = System.nanoTime();
+        SQLTemplate cached = CACHE.putIfAbsent(sql, template);
+        if (CACHE.size() > CACHE_LIMIT) {
+            evict();
+        }
+        return (null != cached) ? cached : template;
+    }
+
+    /**
+     * Cache hit/miss counters.
+     *
+     * @return
+     */
+    static CacheStatistics statistics() {
+        return new CacheStatistics(hits.sum(), misses.sum(), evictions.sum(), CACHE.size());
+    }
+
+    /**
+     * Evict the statements used longest ago, down to the cache limit less an
+     * eviction batch. Only misses evict, so lookups never wait for the scan.
+     */
+    private static void evict() {
+        synchronized (EVICTION_LOCK) {
+            int excess = CACHE.size() - CACHE_LIMIT;
+            if (excess <= 0) {
+                return;
+            }
+            // Stamps change while the cache is used, sort on a snapshot of them
+            record Use(String sql, SQLTemplate template, long stamp) {
+
+            }
+            List<Use> uses = new ArrayList<>(CACHE.size());
+            CACHE.forEach((sql, template) -> uses.add(new Use(sql, template, template.lastUsed)));
+            uses.sort(Comparator.comparingLong(Use::stamp));
+            int count = Math.min(uses.size(), excess + EVICTION_BATCH);
+            for (int i = 0; i < count; i++) {
+                if (CACHE.remove(uses.get(i).sql(), uses.get(i).template())) {
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * Number of IN clauses (??) in the statement.
+     *
+     * @return
+     */
+    int inCount() {
+        return chunks.length - 1;
+    }
+
+    /**
+     * Number of bind parameters (?) in the statement, excluding IN clauses.
+     *
+     * @return
+     */
+    int parameterCount() {
+        return parameterCount;
+    }
+
+    /**
+     * Number of values expected by the statement: the values up to and
+     * including the one bound by the last ? marker. Values consumed by # and
+     * #tag markers are counted only when a ? marker follows them.
+     *
+     * @return
+     */
+    int valueCount() {
+        return requiredValues;
+    }
+
+    /**
+     * Whether the statement uses named :name markers.
+     *
+     * @return
+     */
+    boolean isNamed() {
+        return null != names;
+    }
+
+    /**
+     * Template for binding the component values of a VO: the resolved template
+     * for statements with named markers, otherwise this template.
+     *
+     * @param vo
+     *
+     * @return
+     *
+     * @throws SQLException
+     */
+    SQLTemplate forRecord(VO vo) throws SQLException {
+        return ((null == names) || (null == vo)) ? this : forRecord(vo.getClass());
+    }
+
+    /**
+     * Template with the named markers resolved to the components of a record
+     * class. The values of the resolved template are the record's component
+     * values, in declaration order. Resolved templates are cached per class,
+     * without keeping the class from being unloaded.
+     *
+     * @param type
+     *
+     * @return
+     *
+     * @throws SQLException
+     */
+    SQLTemplate forRecord(Class<?> type) throws SQLException {
+        if (null == names) {
+            return this;
+        }
+        Resolved resolved = recordTemplates.get(type);
+        if (null != resolved.error()) {
+            throw new SQLException(resolved.error());
+        }
+        return resolved.template();
+    }
+
+    private SQLTemplate resolveRecord(Class<?> type) throws SQLException {
+        List<String> components = Arrays.asList(RecordFields.of(type).names());
+        int[] index = new int[names.length];
+        for (int n = 0; n < names.length; n++) {
+            index[n] = components.indexOf(names[n]);
+            if (index[n] < 0) {
+                throw new SQLException("Named parameter :" + names[n] + " has no matching component in " + type.getName());
+            }
+        }
+        return resolve(index, components.size());
+    }
+
+    /**
+     * Template for binding positional values: this template, or for a
+     * statement with named markers, the statement scanned without them. A
+     * statement such as trigger DDL with Oracle :new markers then runs as
+     * written.
+     *
+     * @return
+     */
+    SQLTemplate positional() {
+        if (null == names) {
+            return this;
+        }
+        SQLTemplate template = positional;
+        if (null == template) {
+            template = parse(sql, false);
+            positional = template;
+        }
+        return template;
+    }
+
+    /**
+     * Template with the named markers resolved for map parameters. The values
+     * of the resolved template are given by {@link #mapValues(Map)}.
+     *
+     * @return
+     *
+     * @throws SQLException
+     */
+    SQLTemplate forMap() throws SQLException {
+        if (null == names) {
+            throw new SQLException("Query statement has no named parameters, provide values as an Object[]");
+        }
+        SQLTemplate resolved = mapTemplate;
+        if (null == resolved) {
+            int[] index = new int[names.length];
+            for (int n = 0; n < names.length; n++) {
+                index[n] = n;
+            }
+            resolved = resolve(index, names.length);
+            mapTemplate = resolved;
+        }
+        return resolved;
+    }
+
+    /**
+     * Values for the map template, one per distinct name.
+     *
+     * @param params
+     *
+     * @return
+     *
+     * @throws SQLException
+     */
+    Object[] mapValues(Map<String, ?> params) throws SQLException {
+        Object[] values = new Object[names.length];
+        for (int n = 0; n < names.length; n++) {
+            if (!params.containsKey(names[n])) {
+                throw new SQLException("No value provided for named parameter :" + names[n]);
+            }
+            values[n] = params.get(names[n]);
+        }
+        return values;
+    }
+
+    private SQLTemplate resolve(int[] index, int valueCount) throws SQLException {
+        int[] plan = binds.clone();
+        for (int i = 0; i < plan.length; i++) {
+            if (plan[i] <= NAMED) {
+                plan[i] = index[NAMED - plan[i]];
+            } else if (plan[i] != IN_CLAUSE) {
+                throw new SQLException("Query statement mixes named parameters and positional ? parameters");
+            }
+        }
+        return new SQLTemplate(sql, chunks, plan, parameterCount, valueCount, null);
+    }
+
+    private void checkPositional() throws SQLException {
+        if (null != names) {
+            throw new SQLException("Query statement has named parameters, provide values as a VO or a Map");
+        }
+    }
+
+    /**
+     * Build the final SQL statement and bind values.
+     * <p>
+     * ? params are copied from the values input array, ?? gets expanded to
+     * multiple comma-separated ?, # and #tag markers consume a value without
+     * binding it.
+     *
+     * @param values
+     * @param ins
+     *
+     * @return
+     *
+     * @throws SQLException
+     */
+    QueryInputs render(Object[] values, Object[][] ins) throws SQLException {
+        return render(values, ins, 0, null);
+    }
+
+    /**
+     * Build the final SQL statement and bind values, rounding the size of each
+     * IN clause up to a bucket size. Padded parameters repeat the last value of
+     * the clause, so the query results are unchanged.
+     *
+     * <p>
+     * IN clauses with a replacement are rendered as the replacement SQL
+     * instead, and their parameters are bound as they are.
+     *
+     * @param values
+     * @param ins
+     * @param bucketStep   see {@link #bucket(int, int)}
+     * @param replacements SQL replacing each ?? marker, null entries (or a
+     *                     null array) are expanded
+     *
+     * @return
+     *
+     * @throws SQLException
+     */
+    QueryInputs render(Object[] values, Object[][] ins, int bucketStep, String[] replacements) throws SQLException {
+        checkPositional();
+        int inValues = inValues(ins, bucketStep, replacements);
+        boolean hasValues = (null != values);
+        if (hasValues && (values.length < requiredValues)) {
+            throw new SQLException("Insufficient number of values provided for query params " + values.length + "/" + requiredValues);
+        }
+
+        Object[] bindValues = new Object[(hasValues ? parameterCount : 0) + inValues];
+        StringBuilder sql = new StringBuilder(staticLength + (2 * inValues));
+        sql.append(chunks[0]);
+
+        int bindIndex = 0;
+        int inIndex = 0;
+        for (int bind : binds) {
+            if (bind == IN_CLAUSE) {
+                // Convert IN clause markers to statement params.
+                // In: (??) Out: (?,?,?)
+                Object[] in = ins[inIndex];
+                if (isReplaced(replacements, inIndex)) {
+                    System.arraycopy(in, 0, bindValues, bindIndex, in.length);
+                    bindIndex += in.length;
+                    sql.append(replacements[inIndex]);
+                    sql.append(chunks[++inIndex]);
+                    continue;
+                }
+                int size = bucket(in.length, bucketStep);
+                System.arraycopy(in, 0, bindValues, bindIndex, in.length);
+                Arrays.fill(bindValues, bindIndex + in.length, bindIndex + size, in[in.length - 1]);
+                bindIndex += size;
+
+                sql.append('?');
+                for (int i = 1; i < size; i++) {
+                    sql.append(",?");
+                }
+                sql.append(chunks[++inIndex]);
+            } else if (hasValues) {
+                bindValues[bindIndex++] = values[bind];
+            }
+        }
+        return new QueryInputs(bindValues, sql.toString());
+    }
+
+    /**
+     * Split the largest IN clause so that each execution binds at most
+     * maxParameters values.
+     *
+     * @param values
+     * @param ins
+     * @param maxParameters maximum number of bound values per execution, 0 for
+     *                      no limit
+     * @param bucketStep    see {@link #bucket(int, int)}
+     * @param replacements  SQL replacing each ?? marker, replaced IN clauses
+     *                      are not split
+     *
+     * @return IN clause parameters for each execution, or null if the query
+     *         fits in one execution
+     *
+     * @throws SQLException
+     */
+    List<Object[][]> split(Object[] values, Object[][] ins, int maxParameters, int bucketStep, String[] replacements) throws SQLException {
+        int inCount = inCount();
+        if ((maxParameters <= 0) || (inCount == 0)) {
+            return null;
+        }
+        int total = inValues(ins, bucketStep, replacements);
+        int fixed = (null != values) ? parameterCount : 0;
+        if ((fixed + total) <= maxParameters) {
+            return null;
+        }
+
+        int largest = -1;
+        for (int i = 0; i < inCount; i++) {
+            if (!isReplaced(replacements, i) && ((largest < 0) || (ins[i].length > ins[largest].length))) {
+                largest = i;
+            }
+        }
+        if (largest < 0) {
+            throw new SQLException("Query statement needs more than " + maxParameters + " parameters, and has no IN clause to split");
+        }
+        Object[] in = ins[largest];
+        int room = maxParameters - fixed - (total - bucket(in.length, bucketStep));
+        int chunkSize = room;
+        while ((chunkSize > 0) && (bucket(chunkSize, bucketStep) > room)) {
+            chunkSize--;
+        }
+        if (chunkSize < 1) {
+            throw new SQLException("Query statement needs more than " + maxParameters + " parameters, even with IN clause " + largest + " split");
+        }
+
+        List<Object[][]> chunks = new ArrayList<>((in.length + chunkSize - 1) / chunkSize);
+        for (int start = 0; start < in.length; start += chunkSize) {
+            Object[][] chunk = ins.clone();
+            chunk[largest] = Arrays.copyOfRange(in, start, Math.min(in.length, start + chunkSize));
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    /**
+     * IN clause size after bucketing. A step of 0 keeps the size, a step of 1
+     * rounds up to the next power of two, and larger steps round up to the
+     * next power of two up to the step, and to the next multiple of the step
+     * beyond it.
+     * <p>
+     * Step 64: 3 -> 4, 50 -> 64, 65 -> 128, 130 -> 192
+     *
+     * @param size
+     * @param step
+     *
+     * @return
+     */
+    static int bucket(int size, int step) {
+        if ((step <= 0) || (size <= 1)) {
+            return size;
+        }
+        int power = Integer.highestOneBit(size - 1) << 1;
+        if ((step == 1) || (power <= step)) {
+            return power;
+        }
+        return ((size + step - 1) / step) * step;
+    }
+
+    /**
+     * Final SQL statement of a template without IN clauses. The statement is
+     * the same for every set of values, so batches prepare it once.
+     *
+     * @return
+     *
+     * @throws SQLException
+     */
+    String sql() throws SQLException {
+        if (inCount() > 0) {
+            throw new SQLException("Query statement contains an IN clause, the statement depends on the parameters provided");
+        }
+        return chunks[0];
+    }
+
+    /**
+     * Multi-row VALUES form of the statement, located on first use.
+     *
+     * @return
+     *
+     * @throws SQLException
+     */
+    MultiRowInsert multiRowInsert() throws SQLException {
+        MultiRowInsert insert = multiRowInsert;
+        if (null == insert) {
+            insert = MultiRowInsert.of(sql());
+            multiRowInsert = insert;
+        }
+        return insert;
+    }
+
+    /**
+     * Bind values of a template without IN clauses, without building the SQL
+     * statement.
+     *
+     * @param values
+     *
+     * @return
+     *
+     * @throws SQLException
+     */
+    Object[] bind(Object[] values) throws SQLException {
+        checkPositional();
+        if (inCount() > 0) {
+            throw new SQLException("Query statement contains an IN clause, the statement depends on the parameters provided");
+        }
+        if (null == values) {
+            values = new Object[0];
+        }
+        if (values.length < requiredValues) {
+            throw new SQLException("Insufficient number of values provided for query params " + values.length + "/" + requiredValues);
+        }
+
+        Object[] bindValues = new Object[parameterCount];
+        for (int i = 0; i < binds.length; i++) {
+            bindValues[i] = values[binds[i]];
+        }
+        return bindValues;
+    }
+
+    private static boolean isReplaced(String[] replacements, int index) {
+        return (null != replacements) && (null != replacements[index]);
+    }
+
+    private int inValues(Object[][] ins, int bucketStep, String[] replacements) throws SQLException {
+        int inCount = inCount();
+        if (inCount == 0) {
+            return 0;
+        }
+        if (null == ins) {
+            throw new SQLException("Query statement contains an IN clause but no parameters have been provided");
+        }
+        if (inCount > ins.length) {
+            throw new SQLException("Query statement contains more IN clauses than the parameters provided (" + ins.length + ")");
+        }
+
+        int count = 0;
+        for (int i = 0; i < inCount; i++) {
+            // Replaced clauses bind the strategy's values, which may be none
+            boolean isReplaced = isReplaced(replacements, i);
+            if ((null == ins[i]) || (!isReplaced && (ins[i].length == 0))) {
+                throw new SQLException("Query statement IN clause " + i + " has no parameters");
+            }
+            count += isReplaced ? ins[i].length : bucket(ins[i].length, bucketStep);
+        }
+        return count;
+    }
+
+    private static SQLTemplate parse(String sql) {
+        Scanner scanner = new Scanner(sql, true);
+        scanner.scan();
+        if (scanner.hasPositional && !scanner.names.isEmpty()) {
+            // Colons in statements with ? markers are part of the SQL
+            return parse(sql, false);
+        }
+        return scanner.template();
+    }
+
+    private static SQLTemplate parse(String sql, boolean isNamedEnabled) {
+        Scanner scanner = new Scanner(sql, isNamedEnabled);
+        scanner.scan();
+        return scanner.template();
+    }
+
+    /**
+     * End of the string literal, quoted identifier or comment that starts at
+     * an index, or the index itself if none starts there. Markers and
+     * keywords are not looked for inside them.
+     *
+     * @param sql
+     * @param start
+     *
+     * @return
+     */
+    static int literalEnd(String sql, int start) {
+        int length = sql.length();
+        char c = sql.charAt(start);
+        char next = ((start + 1) < length) ? sql.charAt(start + 1) : 0;
+        if ((c == '\'') || (c == '"')) {
+            int i = start + 1;
+            while (i < length) {
+                if (sql.charAt(i++) == c) {
+                    // Doubled quotes are escaped quotes
+                    if ((i < length) && (sql.charAt(i) == c)) {
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+            }
+            return i;
+        } else if ((c == '-') && (next == '-')) {
+            return commentEnd(sql, start, "\n");
+        } else if ((c == '/') && (next == '*')) {
+            return commentEnd(sql, start, "*/");
+        }
+        return start;
+    }
+
+    private static int commentEnd(String sql, int start, String terminator) {
+        int end = sql.indexOf(terminator, start + 2);
+        return (end < 0) ? sql.length() : end + terminator.length();
+    }
+
+    /**
+     * Single pass scanner for #, ?, ?? and :name markers. String literals, quoted
+     * identifiers and comments are copied as-is, so markers inside them are
+     * not treated as statement parameters. String literals that hold only a
+     * # or #tag marker, such as '#sequence.nextval', are markers. :name markers are only scanned when
+     * named markers are enabled.
+     */
+    private static final class Scanner {
+
+        private final String sql;
+        private final List<String> chunks = new ArrayList<>();
+        private final List<Integer> binds = new ArrayList<>();
+        private final StringBuilder chunk;
+
+        private final List<String> names = new ArrayList<>();
+        private final boolean isNamedEnabled;
+
+        private int valuesSrcIndex = 0;
+        private int parameterCount = 0;
+        private int requiredValues = 0;
+        private boolean isFirstParam = true;
+        private boolean hasPositional = false;
+
+        private Scanner(String sql, boolean isNamedEnabled) {
+            this.sql = sql;
+            this.isNamedEnabled = isNamedEnabled;
+            this.chunk = new StringBuilder(sql.length());
+        }
+
+        private void scan() {
+            int length = sql.length();
+            int i = 0;
+            while (i < length) {
+                char c = sql.charAt(i);
+                char next = ((i + 1) < length) ? sql.charAt(i + 1) : 0;
+
+                int literal = literalEnd(sql, i);
+                if ((c == '\'') && (next == '#') && isQuotedTag(i)) {
+                    // In: ('#sequence.nextval', ?) Out: (sequence.nextval, ?)
+                    i = tag(i + 1) + 1;
+                } else if (literal > i) {
+                    chunk.append(sql, i, literal);
+                    i = literal;
+                } else if (c == '?') {
+                    i = parameter(i, next == '?');
+                } else if (c == '#') {
+                    i = tag(i);
+                } else if (isNamedEnabled && (c == ':') && isNameStart(next) && ((i == 0) || (sql.charAt(i - 1) != ':'))) {
+                    i = named(i);
+                } else {
+                    chunk.append(c);
+                    i++;
+                }
+            }
+            chunks.add(closeChunk(chunk));
+        }
+
+        private int parameter(int start, boolean isInClause) {
+            boolean prependComma = stripSeparator();
+            if (prependComma && !isFirstParam) {
+                chunk.append(", ");
+            }
+
+            if (isInClause) {
+                // In: (??) Out: (?,?,?)
+                chunks.add(closeChunk(chunk));
+                binds.add(IN_CLAUSE);
+                isFirstParam = false;
+                return start + 2;
+            }
+
+            // Copy params with no modifications.
+            chunk.append('?');
+            hasPositional = true;
+            binds.add(valuesSrcIndex);
+            parameterCount++;
+            valuesSrcIndex++;
+            requiredValues = valuesSrcIndex;
+            isFirstParam = false;
+            return start + 1;
+        }
+
+        private int named(int start) {
+            int end = start + 1;
+            while ((end < sql.length()) && (Character.isLetterOrDigit(sql.charAt(end)) || (sql.charAt(end) == '_'))) {
+                end++;
+            }
+            String name = sql.substring(start + 1, end);
+
+            boolean prependComma = stripSeparator();
+            if (prependComma && !isFirstParam) {
+                chunk.append(", ");
+            }
+
+            // In: (:id, :name) Out: (?, ?)
+            int index = names.indexOf(name);
+            if (index < 0) {
+                index = names.size();
+                names.add(name);
+            }
+            chunk.append('?');
+            binds.add(NAMED - index);
+            parameterCount++;
+            isFirstParam = false;
+            return end;
+        }
+
+        private static boolean isNameStart(char c) {
+            return Character.isLetter(c) || (c == '_');
+        }
+
+        /**
+         * Whether the string literal at the index holds only a # or #tag
+         * marker.
+         */
+        private boolean isQuotedTag(int start) {
+            int end = start + 2;
+            while ((end < sql.length()) && isTagCharacter(sql.charAt(end))) {
+                end++;
+            }
+            return (end < sql.length()) && (sql.charAt(end) == '\'');
+        }
+
+        private int tag(int start) {
+            int end = start + 1;
+            while ((end < sql.length()) && isTagCharacter(sql.charAt(end))) {
+                end++;
+            }
+            String tag = sql.substring(start + 1, end).trim();
+            boolean prependComma = stripSeparator();
+
+            if (!tag.isEmpty()) {
+                // In-line replacement of statement markers.
+                // In: (#sequence.nextval, ?) Out: (sequence.nextval, ?)
+                if (prependComma && !isFirstParam) {
+                    chunk.append(", ");
+                }
+                chunk.append(tag);
+                isFirstParam = false;
+            }
+            // Completely skip parameter
+            // In: (#, ?) Out: (?)
+            valuesSrcIndex++;
+            return end;
+        }
+
+        /**
+         * Remove the spaces, and the optional comma before them, that precede
+         * a marker.
+         */
+        private boolean stripSeparator() {
+            int end = chunk.length();
+            while ((end > 0) && (chunk.charAt(end - 1) == ' ')) {
+                end--;
+            }
+            boolean isComma = (end > 0) && (chunk.charAt(end - 1) == ',');
+            chunk.setLength(isComma ? end - 1 : end);
+            return isComma;
+        }
+
+        private static boolean isTagCharacter(char c) {
+            return Character.isLetterOrDigit(c) || (c == '_') || (c == '-') || (c == '.') || (c == ':') || (c == ' ');
+        }
+
+        private SQLTemplate template() {
+            int[] plan = new int[binds.size()];
+            for (int i = 0; i < plan.length; i++) {
+                plan[i] = binds.get(i);
+            }
+            return new SQLTemplate(sql, chunks.toArray(new String[0]), plan, parameterCount, requiredValues,
+                    names.isEmpty() ? null : names.toArray(new String[0]));
+        }
+    }
+
+    private static String closeChunk(StringBuilder chunk) {
+        String closed = chunk.toString().replace("(,", "(");
+        chunk.setLength(0);
+        return closed;
+    }
+}
@@ -0,0 +1,90 @@
+package no.redeye.lib.jdax;
+
+/**
+ * Numeric Connector settings, declared per datasource when it is prepared.
+ * Settings that are not declared use their default value.
+ * <p>
+ * {@link #STATEMENT_CACHE_SIZE}<br>
+ * {@link #INSERT_ROWS_PER_STATEMENT}<br>
+ * {@link #IN_CLAUSE_BUCKETS}<br>
+ * {@link #IN_CLAUSE_MAX_PARAMETERS}<br>
+ * {@link #IN_CLAUSE_ARRAY_SIZE}<br>
+ * {@link #IN_CLAUSE_TEMP_TABLE_SIZE}<br>
+ * {@link #FETCH_SIZE}<br>
+ * {@link #TRANSACTION_RETRIES}<br>
+ * {@link #TRANSACTION_RETRY_DELAY}<br>
+ * {@link #READ_YOUR_WRITES_WINDOW}
+ */
+public enum Settings {
+    /**
+     * Number of prepared statements cached per connection. The cache is
+     * disabled when set to 0.
+     */
+    STATEMENT_CACHE_SIZE(0),
+    /**
+     * Batch inserts are rewritten to multi-row VALUES statements of up to this
+     * many rows, instead of using JDBC batches. Disabled when set to 0.
+     */
+    INSERT_ROWS_PER_STATEMENT(0),
+    /**
+     * IN clause (??) expansions are rounded up to a bucket size, padding with
+     * the last value, to limit the number of distinct statements. 1 rounds up
+     * to powers of two, larger values to powers of two up to the value and to
+     * multiples of the value beyond it. Disabled when set to 0.
+     */
+    IN_CLAUSE_BUCKETS(0),
+    /**
+     * Selects that would bind more values than this are executed in several
+     * statements, each with a part of the largest IN clause (??), and the
+     * results are returned one statement after the other. Disabled when set to
+     * 0.
+     */
+    IN_CLAUSE_MAX_PARAMETERS(0),
+    /**
+     * IN clauses (??) with at least this many values are bound as a single
+     * java.sql.Array parameter. Only for drivers that support
+     * createArrayOf(). Disabled when set to 0.
+     */
+    IN_CLAUSE_ARRAY_SIZE(0),
+    /**
+     * IN clauses (??) with at least this many values are loaded into a session
+     * temporary table. Disabled when set to 0.
+     */
+    IN_CLAUSE_TEMP_TABLE_SIZE(0),
+    /**
+     * Fetch size hint for select statements, also used to size columnar
+     * results. The driver default is used when set to 0.
+     */
+    FETCH_SIZE(0),
+    /**
+     * Number of times Connector.inTransaction() retries work that failed with
+     * a deadlock or serialization failure. Disabled when set to 0.
+     */
+    TRANSACTION_RETRIES(3),
+    /**
+     * Base delay in milliseconds before a transaction retry. Each retry waits
+     * a random time of up to the base delay, doubled for every earlier retry
+     * up to 64 times the base delay.
+     */
+    TRANSACTION_RETRY_DELAY(10),
+    /**
+     * Milliseconds after a write during which selects on the same thread read
+     * from the primary instead of a replica. Disabled when set to 0.
+     */
+    READ_YOUR_WRITES_WINDOW(0);
+
+    private final int defaultValue;
+
+    Settings(int defaultValue) {
+        this.defaultValue = defaultValue;
+    }
+
+    /**
+     * Value used when the setting is not declared for a datasource.
+     *
+     * @return
+     */
+    public int defaultValue() {
+        return defaultValue;
+    }
+}
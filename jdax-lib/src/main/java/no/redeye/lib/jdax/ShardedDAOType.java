@@ -0,0 +1,345 @@
+package no.redeye.lib.jdax;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import no.redeye.lib.jdax.types.InsertResults;
+import no.redeye.lib.jdax.types.ResultRows;
+import no.redeye.lib.jdax.types.UpdateResults;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Data access over tables that are split across several datasources. A shard
+ * function maps a shard key, for example a customer id, to the datasource that
+ * holds its rows. Operations with a shard key run on that shard only.
+ * <p>
+ * Selects without a shard key run on all shards. The statements are prepared
+ * on the calling thread's connections and executed in parallel on a bounded
+ * executor, and the results are merged lazily into one ResultRows. Each shard
+ * is read as by {@link DAOType#select(Object[], String, Object[]...)}, with the
+ * shard's read replicas, borrowed connections, IN clause splitting and
+ * detached results. All shards must agree on
+ * Features.NULL_RESULTS_DISABLED.
+ */
+public class ShardedDAOType implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("apiLogger");
+
+    /**
+     * Maps a shard key to a shard index.
+     */
+    @FunctionalInterface
+    public interface ShardFunction {
+
+        /**
+         * @param shardKey
+         * @param shards   number of shards
+         *
+         * @return shard index, 0 <= index < shards
+         */
+        int shard(Object shardKey, int shards);
+    }
+
+    /**
+     * Shard by the hash code of the shard key.
+     */
+    public static final ShardFunction HASH = (shardKey, shards) -> Math.floorMod(Objects.hashCode(shardKey), shards);
+
+    /**
+     * Natural order of sort column values, with nulls last.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static final Comparator<Object> NATURAL_ORDER = Comparator.nullsLast((a, b) -> ((Comparable) a).compareTo(b));
+
+    private final String[] datasourceNames;
+    private final DAOType[] shards;
+    private final ShardFunction shardFunction;
+    private final ExecutorService executor;
+    private final boolean isOwnExecutor;
+
+    /**
+     * Shards over the given datasources, with a fixed pool of one thread per
+     * shard for selects on all shards.
+     *
+     * @param datasourceNames Connector keys, in shard index order
+     * @param shardFunction
+     */
+    public ShardedDAOType(List<String> datasourceNames, ShardFunction shardFunction) {
+        this(datasourceNames, shardFunction, Executors.newFixedThreadPool(datasourceNames.size(), r -> {
+            Thread thread = new Thread(r, "jdax-shard");
+            thread.setDaemon(true);
+            return thread;
+        }), true);
+    }
+
+    /**
+     * Shards over the given datasources, running selects on all shards on the
+     * given executor. The executor is not shut down by close().
+     *
+     * @param datasourceNames Connector keys, in shard index order
+     * @param shardFunction
+     * @param executor
+     */
+    public ShardedDAOType(List<String> datasourceNames, ShardFunction shardFunction, ExecutorService executor) {
+        this(datasourceNames, shardFunction, executor, false);
+    }
+
+    private ShardedDAOType(List<String> datasourceNames, ShardFunction shardFunction, ExecutorService executor, boolean isOwnExecutor) {
+        if (datasourceNames.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        this.datasourceNames = datasourceNames.toArray(String[]::new);
+        this.shards = new DAOType[this.datasourceNames.length];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new DAOType(this.datasourceNames[i]);
+        }
+        this.shardFunction = Objects.requireNonNull(shardFunction);
+        this.executor = Objects.requireNonNull(executor);
+        this.isOwnExecutor = isOwnExecutor;
+    }
+
+    /**
+     * Number of shards.
+     *
+     * @return
+     */
+    public int shards() {
+        return shards.length;
+    }
+
+    /**
+     * Data access for the shard that holds the shard key.
+     *
+     * @param shardKey
+     *
+     * @return
+     *
+     * @throws SQLException if the shard function returns an invalid index
+     */
+    public DAOType shard(Object shardKey) throws SQLException {
+        return shards[index(shardKey)];
+    }
+
+    /**
+     * Connector key of the shard that holds the shard key.
+     *
+     * @param shardKey
+     *
+     * @return
+     *
+     * @throws SQLException if the shard function returns an invalid index
+     */
+    public String datasourceName(Object shardKey) throws SQLException {
+        return datasourceNames[index(shardKey)];
+    }
+
+    private int index(Object shardKey) throws SQLException {
+        int index = shardFunction.shard(shardKey, shards.length);
+        if ((index < 0) || (index >= shards.length)) {
+            throw new SQLException("Shard index " + index + " for key " + shardKey + " is out of bounds, expected range is: 0 <= index < " + shards.length);
+        }
+        return index;
+    }
+
+    /**
+     * Execute select query on the shard that holds the shard key.
+     *
+     * @param shardKey
+     * @param values
+     * @param sql
+     * @param ins
+     *
+     * @return
+     *
+     * @throws SQLException
+     */
+    public ResultRows select(Object shardKey, Object[] values, String sql, Object[]... ins) throws SQLException {
+        return shard(shardKey).select(values, sql, ins);
+    }
+
+    /**
+     * Execute insert statement on the shard that holds the shard key.
+     *
+     * @param shardKey
+     * @param values
+     * @param sql
+     * @param returnFields
+     *
+     * @return
+     *
+     * @throws SQLException
+     */
+    public InsertResults insert(Object shardKey, Object[] values, String sql, String... returnFields) throws SQLException {
+        return shard(shardKey).insert(values, sql, returnFields);
+    }
+
+    /**
+     * Execute update statement on the shard that holds the shard key.
+     *
+     * @param shardKey
+     * @param values
+     * @param sql
+     * @param ins
+     *
+     * @return
+     *
+     * @throws SQLException
+     */
+    public UpdateResults update(Object shardKey, Object[] values, String sql, Object[]... ins) throws SQLException {
+        return shard(shardKey).update(values, sql, ins);
+    }
+
+    /**
+     * Execute select query on all shards, returning the rows of each shard
+     * one shard after the other.
+     *
+     * @param values
+     * @param sql
+     * @param ins
+     *
+     * @return
+     *
+     * @throws SQLException
+     */
+    public ResultRows selectAll(Object[] values, String sql, Object[]... ins) throws SQLException {
+        return selectAll(null, NATURAL_ORDER, values, sql, ins);
+    }
+
+    /**
+     * Execute select query on all shards, merging the rows in the natural
+     * order of a sort column, nulls last. The query must order each shard's
+     * rows the same way.
+     *
+     * @param sortColumn
+     * @param values
+     * @param sql
+     * @param ins
+     *
+     * @return
+     *
+     * @throws SQLException
+     */
+    public ResultRows selectAll(String sortColumn, Object[] values, String sql, Object[]... ins) throws SQLException {
+        return selectAll(sortColumn, NATURAL_ORDER, values, sql, ins);
+    }
+
+    /**
+     * Execute select query on all shards, merging the rows in the given order
+     * of a sort column. The query must order each shard's rows the same way.
+     * <p>
+     * Statements are prepared on the calling thread's connection to each
+     * shard, and executed in parallel. The rows are read from the shards as
+     * they are consumed, on the calling thread.
+     *
+     * @param sortColumn column to merge on, or null to return shards one after
+     *                   the other
+     * @param order      order of the sort column's JDBC values
+     * @param values
+     * @param sql
+     * @param ins
+     *
+     * @return
+     *
+     * @throws SQLException if the query fails on any shard, or the shards
+     *                      differ in Features.NULL_RESULTS_DISABLED
+     */
+    public ResultRows selectAll(String sortColumn, Comparator<Object> order, Object[] values, String sql, Object[]... ins) throws SQLException {
+        logger.debug("INQ: {} on {} shards", sql, shards.length);
+        boolean allowNulls = !Connector.enabled(datasourceNames[0], Features.NULL_RESULTS_DISABLED);
+        for (String name : datasourceNames) {
+            if (allowNulls == Connector.enabled(name, Features.NULL_RESULTS_DISABLED)) {
+                throw new SQLException("Shards must all enable or all disable Features.NULL_RESULTS_DISABLED, " + name + " differs from " + datasourceNames[0]);
+            }
+        }
+
+        SQLTemplate template = SQLTemplate.of(sql).positional();
+        DAOType.PendingSelect[] selects = new DAOType.PendingSelect[shards.length];
+        ResultRows[] rows = new ResultRows[shards.length];
+        try {
+            for (int i = 0; i < shards.length; i++) {
+                selects[i] = shards[i].prepareSelect(template, values, ins, null);
+            }
+            execute(selects);
+            for (int i = 0; i < shards.length; i++) {
+                // rows() releases the select itself when it fails
+                DAOType.PendingSelect select = selects[i];
+                selects[i] = null;
+                rows[i] = select.rows();
+            }
+            return new ShardedResultRows(rows, sortColumn, order, allowNulls);
+        } catch (SQLException | RuntimeException e) {
+            close(rows, selects, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Execute the selects in parallel, and wait for all of them.
+     */
+    private void execute(DAOType.PendingSelect[] selects) throws SQLException {
+        List<Future<Void>> futures = new ArrayList<>(selects.length);
+        for (DAOType.PendingSelect select : selects) {
+            futures.add(executor.submit(() -> {
+                select.execute();
+                return null;
+            }));
+        }
+
+        SQLException failure = null;
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                futures.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = failure(failure, new SQLException("Interrupted while waiting for shard " + datasourceNames[i], e));
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                failure = failure(failure, (cause instanceof SQLException se) ? se : new SQLException("Select failed on shard " + datasourceNames[i], cause));
+            }
+        }
+        if (null != failure) {
+            throw failure;
+        }
+    }
+
+    private static SQLException failure(SQLException failure, SQLException e) {
+        if (null == failure) {
+            return e;
+        }
+        failure.addSuppressed(e);
+        return failure;
+    }
+
+    /**
+     * Close the rows that were created, and cancel the other selects.
+     */
+    private static void close(ResultRows[] rows, DAOType.PendingSelect[] selects, Exception cause) {
+        for (int i = 0; i < selects.length; i++) {
+            if (null != selects[i]) {
+                selects[i].cancel(cause);
+            }
+            try (ResultRows shardRows = rows[i]) {
+            } catch (SQLException | IOException e) {
+                cause.addSuppressed(e);
+            }
+        }
+    }
+
+    /**
+     * Shut down the executor, if it was created by this instance.
+     */
+    @Override
+    public void close() {
+        if (isOwnExecutor) {
+            executor.shutdown();
+        }
+    }
+}
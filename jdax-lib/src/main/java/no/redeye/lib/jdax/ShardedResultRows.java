@@ -0,0 +1,139 @@
+package no.redeye.lib.jdax;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import no.redeye.lib.jdax.types.ResultRows;
+
+/**
+ * ResultRows of a select that was executed on several shards. Without a sort
+ * column, the rows of each shard are returned one shard after the other. With
+ * a sort column, the shards are merged row by row, taking the next row from
+ * the shard whose current sort value comes first. Each shard must then return
+ * its rows in that order.
+ * <p>
+ * Rows are read lazily from the rows of each shard, and each shard is closed
+ * when it is exhausted.
+ */
+final class ShardedResultRows extends ResultRows {
+
+    private final ResultRows[] rows;
+    private final int sortColumn;
+    private final Object[] sortValues;
+    private final PriorityQueue<Integer> shards;
+    private int current = 0;
+    private boolean isStarted = false;
+
+    /**
+     * Create merged rows over the rows of each shard.
+     *
+     * @param rows       rows of each shard
+     * @param sortColumn label of the column to merge on, or null to return
+     *                   shards one after the other
+     * @param order      order of the sort column values
+     * @param allowNulls
+     *
+     * @throws SQLException
+     */
+    ShardedResultRows(ResultRows[] rows, String sortColumn, Comparator<Object> order, boolean allowNulls) throws SQLException {
+        super(resultSet(rows[0]), null, rows[0].columns(), allowNulls);
+        this.rows = rows;
+        if (null == sortColumn) {
+            this.sortColumn = 0;
+            this.sortValues = null;
+            this.shards = null;
+        } else {
+            this.sortColumn = column(sortColumn);
+            this.sortValues = new Object[rows.length];
+            this.shards = new PriorityQueue<>(rows.length,
+                    (a, b) -> {
+                        int c = order.compare(sortValues[a], sortValues[b]);
+                        return (c != 0) ? c : Integer.compare(a, b);
+                    });
+        }
+    }
+
+    @Override
+    public boolean next() throws SQLException {
+        return (null == shards) ? nextInShardOrder() : nextInSortOrder();
+    }
+
+    private boolean nextInShardOrder() throws SQLException {
+        while ((current < rows.length) && ((null == rows[current]) || !rows[current].next())) {
+            closeShard(current++);
+        }
+        resultSet = (current < rows.length) ? resultSet(rows[current]) : null;
+        return null != resultSet;
+    }
+
+    private boolean nextInSortOrder() throws SQLException {
+        if (!isStarted) {
+            isStarted = true;
+            for (int i = 0; i < rows.length; i++) {
+                advance(i);
+            }
+        } else if (current >= 0) {
+            advance(current);
+        }
+
+        Integer next = shards.poll();
+        if (null == next) {
+            current = -1;
+            resultSet = null;
+            return false;
+        }
+        current = next;
+        resultSet = resultSet(rows[current]);
+        return true;
+    }
+
+    /**
+     * Move a shard to its next row, and queue it by its sort value, or close
+     * it when it is exhausted.
+     */
+    private void advance(int shard) throws SQLException {
+        if (null == rows[shard]) {
+            return;
+        }
+        if (rows[shard].next()) {
+            sortValues[shard] = resultSet(rows[shard]).getObject(sortColumn);
+            shards.add(shard);
+        } else {
+            closeShard(shard);
+        }
+    }
+
+    private void closeShard(int shard) throws SQLException {
+        ResultRows shardRows = rows[shard];
+        if (null == shardRows) {
+            return;
+        }
+        rows[shard] = null;
+        try {
+            shardRows.close();
+        } catch (IOException e) {
+            throw new SQLException(e);
+        }
+    }
+
+    @Override
+    protected void release() throws SQLException {
+        resultSet = null;
+        SQLException failure = null;
+        for (int i = 0; i < rows.length; i++) {
+            try {
+                closeShard(i);
+            } catch (SQLException e) {
+                if (null == failure) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (null != failure) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package no.redeye.lib.jdax;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import no.redeye.lib.jdax.types.CacheStatistics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * An LRU cache of prepared statements for a single connection. Connections are
+ * bound to one thread, so the cache is not synchronized.
+ * <p>
+ * Cached statements are handed out as proxies whose close() returns the
+ * statement to the cache. A statement that is already checked out, for example
+ * by an open ResultRows, is not shared; a separate, uncached statement is
+ * prepared instead.
+ */
+final class StatementCache {
+
+    private static final Logger logger = LogManager.getLogger("apiLogger");
+
+    /**
+     * Hit/miss counters shared by all statement caches of a datasource.
+     */
+    static final class Counters {
+
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+        private final LongAdder size = new LongAdder();
+
+        CacheStatistics statistics() {
+            return new CacheStatistics(hits.sum(), misses.sum(), evictions.sum(), size.intValue());
+        }
+    }
+
+    private record Key(String sql, int generatedKeys, List<String> columnNames) {
+
+    }
+
+    private final Counters counters;
+    private final Map<Key, Entry> statements;
+
+    StatementCache(int capacity, Counters counters) {
+        this.counters = counters;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > capacity) {
+                    counters.evictions.increment();
+                    eldest.getValue().evict();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Return a cached statement, or prepare a new one.
+     *
+     * @param connection
+     * @param sql
+     * @param generatedKeys Statement.RETURN_GENERATED_KEYS or
+     *                      Statement.NO_GENERATED_KEYS
+     * @param columnNames   Generated key column names, or null
+     *
+     * @return
+     *
+     * @throws SQLException
+     */
+    PreparedStatement prepare(Connection connection, String sql, int generatedKeys, String[] columnNames) throws SQLException {
+        Key key = new Key(sql, generatedKeys, (null == columnNames) ? null : Arrays.asList(columnNames));
+        Entry entry = statements.get(key);
+
+        if ((null != entry) && entry.statement.isClosed()) {
+            statements.remove(key);
+            counters.size.decrement();
+            entry = null;
+        }
+
+        if (null == entry) {
+            counters.misses.increment();
+            entry = new Entry(prepare(connection, key));
+            statements.put(key, entry);
+            counters.size.increment();
+        } else if (entry.inUse) {
+            // Shared statements would close each other's result sets
+            counters.misses.increment();
+            return prepare(connection, key);
+        } else {
+            counters.hits.increment();
+        }
+
+        entry.inUse = true;
+        return entry.proxy;
+    }
+
+    private static PreparedStatement prepare(Connection connection, Key key) throws SQLException {
+        if (null != key.columnNames()) {
+            return connection.prepareStatement(key.sql(), key.columnNames().toArray(new String[0]));
+        }
+        if (key.generatedKeys() == Statement.RETURN_GENERATED_KEYS) {
+            return connection.prepareStatement(key.sql(), Statement.RETURN_GENERATED_KEYS);
+        }
+        return connection.prepareStatement(key.sql());
+    }
+
+    /**
+     * Close all cached statements.
+     */
+    void close() {
+        for (Entry entry : new ArrayList<>(statements.values())) {
+            entry.close();
+        }
+        counters.size.add(-statements.size());
+        statements.clear();
+    }
+
+    private final class Entry implements InvocationHandler {
+
+        private final PreparedStatement statement;
+        private final PreparedStatement proxy;
+        private boolean inUse = false;
+        private boolean evicted = false;
+
+        private Entry(PreparedStatement statement) {
+            this.statement = statement;
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(
+                    StatementCache.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    release();
+                    return null;
+                }
+                case "isClosed" -> {
+                    return !inUse || statement.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                default -> {
+                    try {
+                        return method.invoke(statement, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                }
+            }
+        }
+
+        private void release() throws SQLException {
+            if (!inUse) {
+                return;
+            }
+            inUse = false;
+            if (evicted) {
+                close();
+            } else if (!statement.isClosed()) {
+                // Rows queued by a failed batch must not be sent by the next user
+                statement.clearParameters();
+                statement.clearBatch();
+            }
+        }
+
+        private void evict() {
+            evicted = true;
+            counters.size.decrement();
+            if (!inUse) {
+                close();
+            }
+        }
+
+        private void close() {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                logger.error("Error closing cached statement: {}", e);
+            }
+        }
+    }
+}
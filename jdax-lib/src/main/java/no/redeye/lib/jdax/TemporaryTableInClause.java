@@ -0,0 +1,164 @@
+package no.redeye.lib.jdax;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Loads IN clause values into a session temporary table, one table per value
+ * type and open statement.
+ * <pre>
+ * In:  WHERE id IN (??)
+ * Out: WHERE id IN (SELECT v FROM SESSION.JDAX_IN_BIGINT_0)
+ * </pre>
+ * A table is in use until the statement that reads it is released, and other
+ * statements on the connection load their values into another table. Tables
+ * are emptied before they are loaded, and rows are kept on commit.
+ */
+final class TemporaryTableInClause implements InClauseStrategy {
+
+    private static final Logger logger = LogManager.getLogger("apiLogger");
+
+    static final TemporaryTableInClause INSTANCE = new TemporaryTableInClause();
+
+    // Rows per executeBatch() call when loading a table
+    private static final int BATCH_SIZE = 1000;
+
+    // Derby/DB2 SQLState for an object that already exists
+    private static final String ALREADY_EXISTS = "X0Y32";
+
+    // Derby/DB2 SQLState for a table that does not exist
+    private static final String NOT_FOUND = "42X05";
+
+    private static final String SELECT = "SELECT v FROM ";
+
+    private final Map<Connection, Tables> sessions = new WeakHashMap<>();
+
+    /**
+     * Tables declared on a connection, and the tables in use.
+     */
+    private static final class Tables {
+
+        private final Set<String> declared = new HashSet<>();
+        private final Set<String> inUse = new HashSet<>();
+    }
+
+    private TemporaryTableInClause() {
+    }
+
+    @Override
+    public String apply(Connection connection, int index, Object[] in, List<Object> binds) throws SQLException {
+        String type = columnType(in[0]);
+        if (null == type) {
+            return null;
+        }
+
+        String table = lease(connection, type.replaceAll("\\W", ""));
+        try {
+            load(connection, table, type, in);
+        } catch (SQLException | RuntimeException e) {
+            free(connection, table);
+            throw e;
+        }
+        return SELECT + table;
+    }
+
+    @Override
+    public void release(Connection connection, String sql) {
+        free(connection, sql.substring(SELECT.length()));
+    }
+
+    /**
+     * First table of the type that is not in use on the connection.
+     */
+    private String lease(Connection connection, String typeName) {
+        synchronized (sessions) {
+            Tables tables = sessions.computeIfAbsent(connection, c -> new Tables());
+            for (int i = 0;; i++) {
+                String table = "SESSION.JDAX_IN_" + typeName + "_" + i;
+                if (tables.inUse.add(table)) {
+                    return table;
+                }
+            }
+        }
+    }
+
+    private void free(Connection connection, String table) {
+        synchronized (sessions) {
+            Tables tables = sessions.get(connection);
+            if (null != tables) {
+                tables.inUse.remove(table);
+            }
+        }
+    }
+
+    private void load(Connection connection, String table, String type, Object[] in) throws SQLException {
+        declare(connection, table, type, false);
+        try (Statement delete = connection.createStatement()) {
+            delete.executeUpdate("DELETE FROM " + table);
+        } catch (SQLException e) {
+            // Tables declared in a transaction are dropped when it is rolled back
+            if (!NOT_FOUND.equals(e.getSQLState())) {
+                throw e;
+            }
+            declare(connection, table, type, true);
+        }
+
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + table + " (v) VALUES (?)")) {
+            for (int i = 0; i < in.length; i++) {
+                TypeConverter.setValueForType(insert, in[i], 1);
+                insert.addBatch();
+                if (((i + 1) % BATCH_SIZE == 0) || (i + 1 == in.length)) {
+                    insert.executeBatch();
+                }
+            }
+        }
+        logger.debug("Loaded {} IN clause values into {}", in.length, table);
+    }
+
+    private void declare(Connection connection, String table, String type, boolean isDropped) throws SQLException {
+        synchronized (sessions) {
+            Set<String> declared = sessions.get(connection).declared;
+            if (isDropped) {
+                declared.remove(table);
+            } else if (declared.contains(table)) {
+                return;
+            }
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DECLARE GLOBAL TEMPORARY TABLE " + table + " (v " + type + ") ON COMMIT PRESERVE ROWS NOT LOGGED");
+        } catch (SQLException e) {
+            // Pooled connections keep their session tables
+            if (!ALREADY_EXISTS.equals(e.getSQLState())) {
+                throw e;
+            }
+        }
+
+        synchronized (sessions) {
+            sessions.get(connection).declared.add(table);
+        }
+    }
+
+    /**
+     * Column type of the table, from the first value.
+     */
+    private static String columnType(Object value) {
+        if ((value instanceof Integer) || (value instanceof Short)) {
+            return "INTEGER";
+        } else if (value instanceof Long) {
+            return "BIGINT";
+        } else if (value instanceof String) {
+            return "VARCHAR(4000)";
+        }
+        return null;
+    }
+}
@@ -6,6 +6,7 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.net.URI;
 import java.net.URL;
+import java.sql.Array;
 import java.sql.Blob;
 import java.sql.Clob;
 import java.sql.PreparedStatement;
@@ -26,7 +27,45 @@ import java.util.Date;
 public class TypeConverter {
 
     /**
-     * Return a resultSet value of the specified return type.
+     * Reads a column of the current row, and converts it to a Java type.
+     */
+    @FunctionalInterface
+    public interface ColumnReader {
+
+        Object read(ResultSet rs) throws SQLException;
+    }
+
+    /**
+     * Reads a column of the current row as an int, without boxing.
+     */
+    @FunctionalInterface
+    public interface IntReader {
+
+        int read(ResultSet rs) throws SQLException;
+    }
+
+    /**
+     * Reads a column of the current row as a long, without boxing.
+     */
+    @FunctionalInterface
+    public interface LongReader {
+
+        long read(ResultSet rs) throws SQLException;
+    }
+
+    /**
+     * Reads a column of the current row as a double, without boxing.
+     */
+    @FunctionalInterface
+    public interface DoubleReader {
+
+        double read(ResultSet rs) throws SQLException;
+    }
+
+    /**
+     * Return a resultSet value of the specified return type. Use
+     * {@link #reader(int, int, boolean, Class)} to read many rows, so the
+     * conversion is resolved once.
      *
      * @param rs
      * @param columnIndex
@@ -39,6 +78,129 @@ public class TypeConverter {
      * @throws SQLException
      */
     public static Object getValueForType(ResultSet rs, int columnIndex, int columnType, boolean allowNulls, Class<?> returnType) throws SQLException {
+        return reader(columnIndex, columnType, allowNulls, returnType).read(rs);
+    }
+
+    /**
+     * Reader for a column, with the conversion to the return type resolved up
+     * front. Reading a value then only reads the column and applies the
+     * conversion.
+     *
+     * @param columnIndex
+     * @param columnType
+     * @param allowNulls
+     * @param returnType
+     *
+     * @return
+     */
+    public static ColumnReader reader(int columnIndex, int columnType, boolean allowNulls, Class<?> returnType) {
+        TypeRegistry.Converter converter = TypeRegistry.converter(columnType, returnType);
+        return rs -> {
+            Object value = read(rs, columnIndex, columnType, allowNulls);
+            if ((null == value) && allowNulls) {
+                return null;
+            }
+            return converter.apply(value);
+        };
+    }
+
+    /**
+     * Reader for a column as an int. Numeric columns are read and converted
+     * as primitives, other columns go through the Integer conversion of
+     * {@link #reader(int, int, boolean, Class)}.
+     * NULL numeric values read as 0, as with ResultSet getters.
+     *
+     * @param columnIndex
+     * @param columnType
+     * @param allowNulls
+     *
+     * @return
+     */
+    public static IntReader intReader(int columnIndex, int columnType, boolean allowNulls) {
+        return switch (columnType) {
+            case Types.INTEGER ->
+                rs -> rs.getInt(columnIndex);
+            case Types.SMALLINT ->
+                rs -> rs.getShort(columnIndex);
+            case Types.BIGINT, Types.DECIMAL, Types.NUMERIC ->
+                rs -> (int) rs.getLong(columnIndex);
+            case Types.DOUBLE, Types.FLOAT ->
+                rs -> (int) rs.getDouble(columnIndex);
+            case Types.REAL ->
+                rs -> (int) rs.getFloat(columnIndex);
+            default -> {
+                ColumnReader reader = reader(columnIndex, columnType, allowNulls, Integer.class);
+                yield rs -> (Integer) reader.read(rs);
+            }
+        };
+    }
+
+    /**
+     * Reader for a column as a long. Numeric columns are read and converted
+     * as primitives, other columns go through the Long conversion of
+     * {@link #reader(int, int, boolean, Class)}.
+     * NULL numeric values read as 0, as with ResultSet getters.
+     *
+     * @param columnIndex
+     * @param columnType
+     * @param allowNulls
+     *
+     * @return
+     */
+    public static LongReader longReader(int columnIndex, int columnType, boolean allowNulls) {
+        return switch (columnType) {
+            case Types.BIGINT, Types.DECIMAL, Types.NUMERIC ->
+                rs -> rs.getLong(columnIndex);
+            case Types.INTEGER ->
+                rs -> rs.getInt(columnIndex);
+            case Types.SMALLINT ->
+                rs -> rs.getShort(columnIndex);
+            case Types.DOUBLE, Types.FLOAT ->
+                rs -> (long) rs.getDouble(columnIndex);
+            case Types.REAL ->
+                rs -> (long) rs.getFloat(columnIndex);
+            default -> {
+                ColumnReader reader = reader(columnIndex, columnType, allowNulls, Long.class);
+                yield rs -> (Long) reader.read(rs);
+            }
+        };
+    }
+
+    /**
+     * Reader for a column as a double. Numeric columns are read and converted
+     * as primitives, other columns go through the Double conversion of
+     * {@link #reader(int, int, boolean, Class)}.
+     * NULL numeric values read as 0, as with ResultSet getters.
+     *
+     * @param columnIndex
+     * @param columnType
+     * @param allowNulls
+     *
+     * @return
+     */
+    public static DoubleReader doubleReader(int columnIndex, int columnType, boolean allowNulls) {
+        return switch (columnType) {
+            case Types.DOUBLE, Types.FLOAT, Types.DECIMAL, Types.NUMERIC ->
+                rs -> rs.getDouble(columnIndex);
+            case Types.REAL ->
+                rs -> rs.getFloat(columnIndex);
+            case Types.BIGINT ->
+                rs -> rs.getLong(columnIndex);
+            case Types.INTEGER ->
+                rs -> rs.getInt(columnIndex);
+            case Types.SMALLINT ->
+                rs -> rs.getShort(columnIndex);
+            default -> {
+                ColumnReader reader = reader(columnIndex, columnType, allowNulls, Double.class);
+                yield rs -> (Double) reader.read(rs);
+            }
+        };
+    }
+
+    /**
+     * Read the raw value of a column, before conversion to a return type.
+     */
+    private static Object read(ResultSet rs, int columnIndex, int columnType, boolean allowNulls) throws SQLException {
         Object value;
         switch (columnType) {
             case Types.VARCHAR, Types.LONGNVARCHAR -> {
@@ -143,7 +305,7 @@ public class TypeConverter {
                 }
             }
         }
-        return TypeRegistry.scaleToType(value, columnType, returnType);
+        return value;
     }
 
     private static boolean returnNull(Object v, boolean allowNulls) {
@@ -228,6 +390,8 @@ public class TypeConverter {
             ps.setBinaryStream(columnIndex, is);
         } else if (value instanceof Reader reader) {
             ps.setCharacterStream(columnIndex, reader);
+        } else if (value instanceof Array array) {
+            ps.setArray(columnIndex, array);
         } else {
             throw new SQLException("Object of type " + value.getClass().getName() + ", is not supported");
         }
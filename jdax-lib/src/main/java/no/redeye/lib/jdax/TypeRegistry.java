@@ -15,13 +15,18 @@ import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.OffsetTime;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.stream.Collectors;
 import no.redeye.lib.jdax.types.EmptyStream;
 
 /**
- *
+ * Conversions from SQL types (java.sql.Types) to Java types.
+ * <p>
+ * Conversions are kept per Java type in a ClassValue, as an array indexed by a
+ * compact SQL type ordinal. Registering a conversion publishes a new array, so
+ * lookups read without locks. Readers and record mappers resolve their
+ * conversions once, so application conversions should be registered before
+ * queries are run.
  */
 public class TypeRegistry {
 
@@ -31,8 +36,35 @@ public class TypeRegistry {
         Object apply(Object value) throws SQLException;
     }
 
-    // Conversion registry
-    private static final Map<Integer, Map<Class<?>, Converter>> CONVERSIONS = new HashMap<>();
+    // SQL types with an ordinal in the conversion arrays
+    private static final int[] SQL_TYPES = {
+        Types.BIT, Types.TINYINT, Types.SMALLINT, Types.INTEGER, Types.BIGINT,
+        Types.FLOAT, Types.REAL, Types.DOUBLE, Types.NUMERIC, Types.DECIMAL,
+        Types.CHAR, Types.VARCHAR, Types.LONGVARCHAR, Types.DATE, Types.TIME,
+        Types.TIMESTAMP, Types.BINARY, Types.VARBINARY, Types.LONGVARBINARY, Types.NULL,
+        Types.OTHER, Types.JAVA_OBJECT, Types.DISTINCT, Types.STRUCT, Types.ARRAY,
+        Types.BLOB, Types.CLOB, Types.REF, Types.DATALINK, Types.BOOLEAN,
+        Types.ROWID, Types.NCHAR, Types.NVARCHAR, Types.LONGNVARCHAR, Types.NCLOB,
+        Types.SQLXML, Types.REF_CURSOR, Types.TIME_WITH_TIMEZONE, Types.TIMESTAMP_WITH_TIMEZONE
+    };
+
+    // Ordinal of each SQL type, for the classic (-16..93) and JDBC 4 (2000..2014) type codes, -1 for other codes
+    private static final int[] ORDINALS = ordinals(Types.LONGNVARCHAR, Types.TIMESTAMP);
+    private static final int[] JDBC4_ORDINALS = ordinals(Types.JAVA_OBJECT, Types.TIMESTAMP_WITH_TIMEZONE);
+    private static final int OTHER_ORDINAL = 20; // Index of Types.OTHER in SQL_TYPES
+
+    // Conversion registry, the conversions to a Java type indexed by SQL type ordinal
+    private static final ClassValue<Target> CONVERSIONS = new ClassValue<>() {
+        @Override
+        protected Target computeValue(Class<?> type) {
+            return new Target();
+        }
+    };
+
+    private static final class Target {
+
+        private volatile Converter[] converters = new Converter[SQL_TYPES.length];
+    }
 
     // Map SQL types to canonical Java type
     public static final Map<Integer, Class<?>> SQL_TO_JAVA = Map.ofEntries(
@@ -224,8 +256,55 @@ public class TypeRegistry {
         register(Types.REF_CURSOR, Void.class, v -> v);
     }
 
-    private static void register(int from, Class<?> to, Converter fn) {
-        CONVERSIONS.computeIfAbsent(from, k -> new HashMap<>()).put(to, fn);
+    /**
+     * Register a conversion from an SQL type to a Java type, replacing any
+     * earlier conversion between the two. Register Void.class as the Java type
+     * for the value returned for nulls when Features.NULL_RESULTS_DISABLED is
+     * set.
+     *
+     * @param from SQL type (java.sql.Types)
+     * @param to
+     * @param fn
+     */
+    public static synchronized void register(int from, Class<?> to, Converter fn) {
+        if (null == fn) {
+            throw new IllegalArgumentException("Converter cannot be null");
+        }
+        int ordinal = ordinal(from);
+        if (ordinal < 0) {
+            throw new IllegalArgumentException("Unsupported SQL type " + from);
+        }
+        Target target = CONVERSIONS.get(normalize(to));
+        Converter[] converters = target.converters.clone();
+        converters[ordinal] = fn;
+        target.converters = converters;
+    }
+
+    private static Converter lookup(int from, Class<?> targetType) {
+        int ordinal = ordinal(from);
+        return (ordinal < 0) ? null : CONVERSIONS.get(targetType).converters[ordinal];
+    }
+
+    private static int ordinal(int sqlType) {
+        if ((sqlType >= Types.LONGNVARCHAR) && (sqlType <= Types.TIMESTAMP)) {
+            return ORDINALS[sqlType - Types.LONGNVARCHAR];
+        }
+        if ((sqlType >= Types.JAVA_OBJECT) && (sqlType <= Types.TIMESTAMP_WITH_TIMEZONE)) {
+            return JDBC4_ORDINALS[sqlType - Types.JAVA_OBJECT];
+        }
+        return (sqlType == Types.OTHER) ? OTHER_ORDINAL : -1;
+    }
+
+    private static int[] ordinals(int minCode, int maxCode) {
+        int[] ordinals = new int[maxCode - minCode + 1];
+        Arrays.fill(ordinals, -1);
+        for (int ordinal = 0; ordinal < SQL_TYPES.length; ordinal++) {
+            int i = SQL_TYPES[ordinal] - minCode;
+            if ((i >= 0) && (i < ordinals.length)) {
+                ordinals[i] = ordinal;
+            }
+        }
+        return ordinals;
     }
 
     /**
@@ -237,8 +316,7 @@ public class TypeRegistry {
      * @return
      */
     public static boolean isCompatible(int from, Class<?> to) {
-        Class<?> targetType = normalize(to);
-        return CONVERSIONS.getOrDefault(from, Map.of()).containsKey(targetType);
+        return null != lookup(from, normalize(to));
     }
 
     /**
@@ -261,9 +339,7 @@ public class TypeRegistry {
             targetType = Void.class;
         }
 
-        Converter fn = CONVERSIONS
-                .getOrDefault(from, Map.of())
-                .get(targetType);
+        Converter fn = lookup(from, targetType);
 
         if (null != fn) {
             return fn.apply(value);
@@ -272,6 +348,29 @@ public class TypeRegistry {
         throw new IllegalArgumentException("No conversion from " + from + " to " + targetType);
     }
 
+    /**
+     * Resolve the conversion of values of type 'from' to 'to' once. The
+     * returned converter behaves like scaleToType(), including the default
+     * for null values.
+     *
+     * @param from
+     * @param to
+     *
+     * @return
+     */
+    public static Converter converter(int from, Class<?> to) {
+        Class<?> targetType = normalize(to);
+        Converter fn = lookup(from, targetType);
+        Converter nullFn = lookup(from, Void.class);
+        return value -> {
+            Converter c = (null == value) ? nullFn : fn;
+            if (null == c) {
+                throw new IllegalArgumentException("No conversion from " + from + " to " + ((null == value) ? Void.class : targetType));
+            }
+            return c.apply(value);
+        };
+    }
+
     private static Class<?> normalize(Class<?> type) {
         if (null == type) {
             type = Void.class;
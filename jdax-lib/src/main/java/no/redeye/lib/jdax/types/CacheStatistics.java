@@ -0,0 +1,17 @@
+package no.redeye.lib.jdax.types;
+
+/**
+ * A transfer object for cache hit/miss counters.
+ */
+public record CacheStatistics(long hits, long misses, long evictions, int size) {
+
+    /**
+     * Ratio of cache hits to total lookups, 0 if the cache has not been used.
+     *
+     * @return
+     */
+    public double hitRatio() {
+        long lookups = hits + misses;
+        return (lookups == 0) ? 0.0d : (double) hits / lookups;
+    }
+}
@@ -0,0 +1,524 @@
+package no.redeye.lib.jdax.types;
+
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import no.redeye.lib.jdax.TypeConverter;
+import no.redeye.lib.jdax.TypeRegistry;
+
+/**
+ * Query results materialised column by column. Integral columns are kept in
+ * int[] or long[], floating point columns in double[], character columns as
+ * dictionary codes, and other columns as objects of their TypeRegistry
+ * canonical type. SQL nulls are recorded in a bitmap per column.
+ * <p>
+ * A ColumnarResult holds no database resources. Column indices start at 1,
+ * row indices at 0.
+ */
+public final class ColumnarResult {
+
+    private static final int INTS = 0;
+    private static final int LONGS = 1;
+    private static final int DOUBLES = 2;
+    private static final int STRINGS = 3;
+    private static final int OBJECTS = 4;
+
+    private final Columns columns;
+    private final int rows;
+    private final int[] kinds;
+    private final Object[] values;     // int[], long[], double[], int[] codes or Object[] per column
+    private final String[][] dictionaries;
+    private final long[][] nulls;
+    private final boolean allowNulls;
+
+    private ColumnarResult(Columns columns, int rows, int[] kinds, Object[] values, String[][] dictionaries, long[][] nulls, boolean allowNulls) {
+        this.columns = columns;
+        this.rows = rows;
+        this.kinds = kinds;
+        this.values = values;
+        this.dictionaries = dictionaries;
+        this.nulls = nulls;
+        this.allowNulls = allowNulls;
+    }
+
+    /**
+     * Builder for a result with the given columns. The arrays are sized from
+     * the fetch size, and grow as rows are added.
+     *
+     * @param columns
+     * @param allowNulls
+     * @param fetchSize
+     *
+     * @return
+     */
+    static Builder builder(Columns columns, boolean allowNulls, int fetchSize) {
+        return new Builder(columns, allowNulls, Math.max(16, fetchSize), false);
+    }
+
+    /**
+     * Builder for the rows of a detached result set. Nulls are kept, and
+     * object columns hold the values of the JDBC getters TypeConverter uses
+     * for their column type, so the rows convert as they would from the live
+     * result set.
+     *
+     * @param columns
+     * @param fetchSize
+     *
+     * @return
+     */
+    static Builder detached(Columns columns, int fetchSize) {
+        return new Builder(columns, true, Math.max(16, fetchSize), true);
+    }
+
+    /**
+     * Number of rows.
+     *
+     * @return
+     */
+    public int rows() {
+        return rows;
+    }
+
+    /**
+     * Column labels and types.
+     *
+     * @return
+     */
+    public Columns columns() {
+        return columns;
+    }
+
+    /**
+     * Resolve a column name, ignoring case, to a column index.
+     *
+     * @param fieldName
+     *
+     * @return
+     *
+     * @throws SQLException if there is no column with that name
+     */
+    public int column(String fieldName) throws SQLException {
+        int index = columns.index(fieldName);
+        if (index < 1) {
+            throw new SQLException("No column named " + fieldName);
+        }
+        return index;
+    }
+
+    /**
+     * Whether the value at the given column and row is SQL NULL.
+     *
+     * @param column
+     * @param row
+     *
+     * @return
+     */
+    public boolean isNull(int column, int row) {
+        checkRow(row);
+        kind(column);
+        return (nulls[column - 1][row >>> 6] & (1L << row)) != 0;
+    }
+
+    public int getInt(int column, int row) throws SQLException {
+        checkRow(row);
+        return switch (kind(column)) {
+            case INTS ->
+                ((int[]) values[column - 1])[row];
+            case LONGS ->
+                (int) ((long[]) values[column - 1])[row];
+            case DOUBLES ->
+                (int) ((double[]) values[column - 1])[row];
+            default ->
+                number(column, row, Integer.class).intValue();
+        };
+    }
+
+    public long getLong(int column, int row) throws SQLException {
+        checkRow(row);
+        return switch (kind(column)) {
+            case INTS ->
+                ((int[]) values[column - 1])[row];
+            case LONGS ->
+                ((long[]) values[column - 1])[row];
+            case DOUBLES ->
+                (long) ((double[]) values[column - 1])[row];
+            default ->
+                number(column, row, Long.class).longValue();
+        };
+    }
+
+    public double getDouble(int column, int row) throws SQLException {
+        checkRow(row);
+        return switch (kind(column)) {
+            case INTS ->
+                ((int[]) values[column - 1])[row];
+            case LONGS ->
+                ((long[]) values[column - 1])[row];
+            case DOUBLES ->
+                ((double[]) values[column - 1])[row];
+            default ->
+                number(column, row, Double.class).doubleValue();
+        };
+    }
+
+    public String getString(int column, int row) throws SQLException {
+        checkRow(row);
+        if (kind(column) == STRINGS) {
+            int code = ((int[]) values[column - 1])[row];
+            return (code < 0) ? (allowNulls ? null : "") : dictionaries[column - 1][code];
+        }
+        Object value = getObject(column, row);
+        return (null == value) ? null : value.toString();
+    }
+
+    /**
+     * Value at the given column and row, as the column's canonical Java type.
+     * Null values are returned as null, or as their TypeRegistry default when
+     * nulls are disabled.
+     *
+     * @param column
+     * @param row
+     *
+     * @return
+     *
+     * @throws SQLException
+     */
+    public Object getObject(int column, int row) throws SQLException {
+        checkRow(row);
+        if (kind(column) == STRINGS) {
+            return getString(column, row);
+        }
+        if (kind(column) == OBJECTS) {
+            return ((Object[]) values[column - 1])[row];
+        }
+        if (isNull(column, row) && allowNulls) {
+            return null;
+        }
+        Class<?> type = TypeRegistry.SQL_TO_JAVA.get(columns.type(column));
+        return switch (kind(column)) {
+            case INTS ->
+                canonical(((int[]) values[column - 1])[row], Types.INTEGER, type);
+            case LONGS ->
+                canonical(((long[]) values[column - 1])[row], Types.BIGINT, type);
+            default ->
+                canonical(((double[]) values[column - 1])[row], Types.DOUBLE, type);
+        };
+    }
+
+    /**
+     * Stored value as the column's canonical type, for example Short for
+     * SMALLINT columns stored as int.
+     */
+    private static Object canonical(Object value, int storedType, Class<?> type) throws SQLException {
+        return ((null == type) || type.isInstance(value)) ? value : TypeRegistry.scaleToType(value, storedType, type);
+    }
+
+    /**
+     * Values of an integer column. The array is shared, not copied.
+     *
+     * @param column
+     *
+     * @return
+     *
+     * @throws SQLException if the column is not stored as int values
+     */
+    public int[] ints(int column) throws SQLException {
+        return (int[]) array(column, INTS);
+    }
+
+    /**
+     * Values of a BIGINT column. The array is shared, not copied.
+     *
+     * @param column
+     *
+     * @return
+     *
+     * @throws SQLException if the column is not stored as long values
+     */
+    public long[] longs(int column) throws SQLException {
+        return (long[]) array(column, LONGS);
+    }
+
+    /**
+     * Values of a floating point column. The array is shared, not copied.
+     *
+     * @param column
+     *
+     * @return
+     *
+     * @throws SQLException if the column is not stored as double values
+     */
+    public double[] doubles(int column) throws SQLException {
+        return (double[]) array(column, DOUBLES);
+    }
+
+    /**
+     * Dictionary codes of a character column, -1 for nulls. The array is
+     * shared, not copied.
+     *
+     * @param column
+     *
+     * @return
+     *
+     * @throws SQLException if the column is not dictionary encoded
+     */
+    public int[] codes(int column) throws SQLException {
+        return (int[]) array(column, STRINGS);
+    }
+
+    /**
+     * Distinct values of a character column, indexed by code.
+     *
+     * @param column
+     *
+     * @return
+     *
+     * @throws SQLException if the column is not dictionary encoded
+     */
+    public String[] dictionary(int column) throws SQLException {
+        array(column, STRINGS);
+        return dictionaries[column - 1].clone();
+    }
+
+    private Object array(int column, int kind) throws SQLException {
+        if (kind(column) != kind) {
+            throw new SQLException("Column " + column + " (" + columns.label(column) + ") is not stored as " + KIND_NAMES[kind]);
+        }
+        return values[column - 1];
+    }
+
+    private static final String[] KIND_NAMES = {"int", "long", "double", "strings", "objects"};
+
+    /**
+     * Value of a character or object column, converted by TypeRegistry.
+     */
+    private Number number(int column, int row, Class<? extends Number> type) throws SQLException {
+        int sqlType = columns.type(column);
+        if (!TypeRegistry.isCompatible(sqlType, type)) {
+            throw new SQLException("Column " + column + " (" + columns.label(column) + ") of SQL type " + sqlType + " cannot be read as " + type.getSimpleName());
+        }
+        Object value = (kind(column) == STRINGS) ? getString(column, row) : ((Object[]) values[column - 1])[row];
+        return (null == value) ? 0 : (Number) TypeRegistry.scaleToType(value, sqlType, type);
+    }
+
+    private int kind(int column) {
+        if ((column < 1) || (column > kinds.length)) {
+            throw new IndexOutOfBoundsException("Column index " + column + " is out of bounds, expected range is: 1 <= index <= " + kinds.length);
+        }
+        return kinds[column - 1];
+    }
+
+    private void checkRow(int row) {
+        if ((row < 0) || (row >= rows)) {
+            throw new IndexOutOfBoundsException("Row index " + row + " is out of bounds, expected range is: 0 <= index < " + rows);
+        }
+    }
+
+    private static int storage(int sqlType) {
+        return switch (sqlType) {
+            case Types.INTEGER, Types.SMALLINT, Types.TINYINT ->
+                INTS;
+            case Types.BIGINT ->
+                LONGS;
+            case Types.DOUBLE, Types.FLOAT, Types.REAL ->
+                DOUBLES;
+            case Types.CHAR, Types.VARCHAR, Types.LONGVARCHAR, Types.NCHAR, Types.NVARCHAR, Types.LONGNVARCHAR ->
+                STRINGS;
+            default ->
+                OBJECTS;
+        };
+    }
+
+    /**
+     * Grows the column arrays while rows are read.
+     */
+    static final class Builder {
+
+        private final Columns columns;
+        private final boolean allowNulls;
+        private final int[] kinds;
+        private final Object[] values;
+        private final long[][] nulls;
+        private final List<Map<String, Integer>> codes = new ArrayList<>();
+        private final List<List<String>> dictionaries = new ArrayList<>();
+        private final TypeConverter.ColumnReader[] readers;
+        private int rows = 0;
+        private int capacity;
+
+        private Builder(Columns columns, boolean allowNulls, int capacity, boolean jdbcValues) {
+            this.columns = columns;
+            this.allowNulls = allowNulls;
+            this.capacity = capacity;
+            int count = columns.count();
+            this.kinds = new int[count];
+            this.values = new Object[count];
+            this.nulls = new long[count][(capacity + 63) >>> 6];
+            this.readers = new TypeConverter.ColumnReader[count];
+            for (int i = 0; i < count; i++) {
+                int type = columns.type(i + 1);
+                kinds[i] = storage(type);
+                values[i] = switch (kinds[i]) {
+                    case INTS, STRINGS ->
+                        new int[capacity];
+                    case LONGS ->
+                        new long[capacity];
+                    case DOUBLES ->
+                        new double[capacity];
+                    default ->
+                        new Object[capacity];
+                };
+                codes.add((kinds[i] == STRINGS) ? new HashMap<>() : null);
+                dictionaries.add((kinds[i] == STRINGS) ? new ArrayList<>() : null);
+                if (kinds[i] == OBJECTS) {
+                    readers[i] = jdbcValues ? jdbcReader(i + 1, type) : lobReader(i + 1, type, allowNulls);
+                }
+            }
+        }
+
+        /**
+         * Add the current row of the result set.
+         */
+        void add(ResultSet rs) throws SQLException {
+            if (rows == capacity) {
+                grow();
+            }
+            for (int i = 0; i < kinds.length; i++) {
+                int index = i + 1;
+                boolean isNull;
+                switch (kinds[i]) {
+                    case INTS -> {
+                        ((int[]) values[i])[rows] = rs.getInt(index);
+                        isNull = rs.wasNull();
+                    }
+                    case LONGS -> {
+                        ((long[]) values[i])[rows] = rs.getLong(index);
+                        isNull = rs.wasNull();
+                    }
+                    case DOUBLES -> {
+                        ((double[]) values[i])[rows] = rs.getDouble(index);
+                        isNull = rs.wasNull();
+                    }
+                    case STRINGS -> {
+                        String v = rs.getString(index);
+                        isNull = (null == v);
+                        ((int[]) values[i])[rows] = isNull ? -1 : code(i, v);
+                    }
+                    default -> {
+                        Object v = readers[i].read(rs);
+                        isNull = rs.wasNull();
+                        ((Object[]) values[i])[rows] = v;
+                    }
+                }
+                if (isNull) {
+                    nulls[i][rows >>> 6] |= (1L << rows);
+                }
+            }
+            rows++;
+        }
+
+        private int code(int column, String value) {
+            Integer code = codes.get(column).get(value);
+            if (null == code) {
+                List<String> dictionary = dictionaries.get(column);
+                code = dictionary.size();
+                dictionary.add(value);
+                codes.get(column).put(value, code);
+            }
+            return code;
+        }
+
+        private void grow() {
+            capacity *= 2;
+            for (int i = 0; i < kinds.length; i++) {
+                values[i] = resize(values[i], capacity);
+                nulls[i] = Arrays.copyOf(nulls[i], (capacity + 63) >>> 6);
+            }
+        }
+
+        ColumnarResult build() {
+            String[][] dictionaries = new String[kinds.length][];
+            for (int i = 0; i < kinds.length; i++) {
+                values[i] = resize(values[i], rows);
+                if (kinds[i] == STRINGS) {
+                    dictionaries[i] = this.dictionaries.get(i).toArray(String[]::new);
+                }
+            }
+            return new ColumnarResult(columns, rows, kinds, values, dictionaries, nulls, allowNulls);
+        }
+
+        private static Object resize(Object array, int length) {
+            if (array instanceof int[] a) {
+                return Arrays.copyOf(a, length);
+            }
+            if (array instanceof long[] a) {
+                return Arrays.copyOf(a, length);
+            }
+            if (array instanceof double[] a) {
+                return Arrays.copyOf(a, length);
+            }
+            return Arrays.copyOf((Object[]) array, length);
+        }
+
+        /**
+         * Reader for object columns. Large objects are read into memory, as
+         * their streams are not readable after the result set is closed.
+         */
+        private static TypeConverter.ColumnReader lobReader(int index, int type, boolean allowNulls) {
+            return switch (type) {
+                case Types.BLOB, Types.BINARY, Types.VARBINARY, Types.LONGVARBINARY ->
+                    rs -> {
+                        byte[] v = rs.getBytes(index);
+                        return ((null == v) && !allowNulls) ? new byte[0] : v;
+                    };
+                case Types.CLOB, Types.NCLOB ->
+                    rs -> {
+                        String v = rs.getString(index);
+                        return ((null == v) && !allowNulls) ? "" : v;
+                    };
+                default ->
+                    TypeConverter.reader(index, type, allowNulls, TypeRegistry.SQL_TO_JAVA.get(type));
+            };
+        }
+
+        /**
+         * Reader for object columns of detached rows, with the getter
+         * TypeConverter uses for the column type. Large objects are read into
+         * memory.
+         */
+        private static TypeConverter.ColumnReader jdbcReader(int index, int type) {
+            return switch (type) {
+                case Types.DECIMAL, Types.NUMERIC ->
+                    rs -> rs.getBigDecimal(index);
+                case Types.BIT, Types.BOOLEAN ->
+                    rs -> rs.getBoolean(index);
+                case Types.BINARY, Types.VARBINARY, Types.LONGVARBINARY ->
+                    rs -> rs.getBytes(index);
+                case Types.DATE ->
+                    rs -> rs.getDate(index);
+                case Types.TIME, Types.TIME_WITH_TIMEZONE ->
+                    rs -> rs.getTime(index);
+                case Types.TIMESTAMP, Types.TIMESTAMP_WITH_TIMEZONE ->
+                    rs -> rs.getTimestamp(index);
+                case Types.BLOB ->
+                    rs -> {
+                        Blob v = rs.getBlob(index);
+                        return (null == v) ? null : v.getBytes(1, (int) v.length());
+                    };
+                case Types.CLOB, Types.NCLOB ->
+                    rs -> {
+                        Clob v = rs.getClob(index);
+                        return (null == v) ? null : v.getSubString(1, (int) v.length());
+                    };
+                default ->
+                    rs -> rs.getObject(index);
+            };
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package no.redeye.lib.jdax.types;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Locale;
+
+/**
+ * Column labels and SQL types of a result set, read once from the result set
+ * metadata. Labels are kept in lower case for case-insensitive lookups. Column
+ * indices start at 1, not 0.
+ * <p>
+ * Labels are indexed in an open addressing hash table, hashed on case-folded
+ * characters, so looking up a name neither scans the labels nor allocates a
+ * lower case copy of the name. Labels are lowered with Locale.ROOT, so they
+ * are found under any default locale.
+ */
+public final class Columns {
+
+    final String[] labels;
+    final int[] types;
+    private final int[] slots; // column index, 0 for empty slots
+
+    private Columns(String[] labels, int[] types) {
+        this.labels = labels;
+        this.types = types;
+        this.slots = new int[Integer.highestOneBit(Math.max(1, labels.length) * 2) * 2];
+
+        int mask = slots.length - 1;
+        for (int i = 0; i < labels.length; i++) {
+            int slot = hash(labels[i]) & mask;
+            while (slots[slot] != 0) {
+                if (labels[slots[slot] - 1].equals(labels[i])) {
+                    break; // Duplicate labels resolve to the first column
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (slots[slot] == 0) {
+                slots[slot] = i + 1;
+            }
+        }
+    }
+
+    /**
+     * Read column labels and types from result set metadata.
+     *
+     * @param metaData
+     *
+     * @return
+     *
+     * @throws SQLException
+     */
+    public static Columns of(ResultSetMetaData metaData) throws SQLException {
+        int count = metaData.getColumnCount();
+        String[] labels = new String[count];
+        int[] types = new int[count];
+        for (int i = 0; i < count; i++) {
+            String label = metaData.getColumnLabel(i + 1);
+            labels[i] = (null != label) ? label.toLowerCase(Locale.ROOT) : "";
+            types[i] = metaData.getColumnType(i + 1);
+        }
+        return new Columns(labels, types);
+    }
+
+    /**
+     * Number of columns.
+     *
+     * @return
+     */
+    public int count() {
+        return types.length;
+    }
+
+    /**
+     * Lower case label of the indexed column.
+     *
+     * @param index
+     *
+     * @return
+     */
+    public String label(int index) {
+        return labels[index - 1];
+    }
+
+    /**
+     * Index of the column with the given label, ignoring case. Duplicate
+     * labels resolve to the first column.
+     *
+     * @param label
+     *
+     * @return column index, or -1 if there is no such column
+     */
+    public int index(String label) {
+        if (null == label) {
+            return -1;
+        }
+        int index = find(label);
+        if ((index < 0) && !isAscii(label)) {
+            // Characters whose Locale.ROOT lower case differs from their case-folded character
+            index = find(label.toLowerCase(Locale.ROOT));
+        }
+        return index;
+    }
+
+    private int find(String label) {
+        int mask = slots.length - 1;
+        int slot = hash(label) & mask;
+        while (slots[slot] != 0) {
+            String candidate = labels[slots[slot] - 1];
+            if ((candidate.length() == label.length()) && candidate.regionMatches(true, 0, label, 0, label.length())) {
+                return slots[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private static boolean isAscii(String label) {
+        for (int i = 0; i < label.length(); i++) {
+            if (label.charAt(i) > 0x7f) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(String label) {
+        int h = 0;
+        for (int i = 0; i < label.length(); i++) {
+            h = (31 * h) + Character.toLowerCase(label.charAt(i));
+        }
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * SQL type (java.sql.Types) of the indexed column.
+     *
+     * @param index
+     *
+     * @return
+     */
+    public int type(int index) {
+        return types[index - 1];
+    }
+
+    /**
+     * SQL types (java.sql.Types) of all columns.
+     *
+     * @return
+     */
+    public int[] types() {
+        return types.clone();
+    }
+}
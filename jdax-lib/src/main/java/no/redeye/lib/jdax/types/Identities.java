@@ -1,21 +1,53 @@
 package no.redeye.lib.jdax.types;
 
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.RowId;
 import java.sql.SQLException;
 import java.sql.Types;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 
+/**
+ * Generated keys of inserted rows. Keys are stored per column; integral key
+ * columns are kept in a long[], other columns in an Object[].
+ * <p>
+ * Index based accessors address the keys row by row: index = row * columns() +
+ * column. For the common single column key, the index is the row number.
+ */
 public class Identities {
 
-    private final List<Object> rawPairs; // alternating [type, value]
+    private final int rows;
+    private final int[] types;
+    private final long[][] longs;     // [column][row], null for object columns
+    private final Object[][] objects; // [column][row], null for long columns
 
+    private Identities(int rows, int[] types, long[][] longs, Object[][] objects) {
+        this.rows = rows;
+        this.types = types;
+        this.longs = longs;
+        this.objects = objects;
+    }
+
+    /**
+     * A single row of identities, from alternating (type, value) pairs.
+     *
+     * @param rawPairs
+     */
     public Identities(List<Object> rawPairs) {
         if (rawPairs.size() % 2 != 0) {
             throw new IllegalArgumentException("List must contain (type, value) pairs");
         }
-        this.rawPairs = new ArrayList<>(rawPairs);
+        int columns = rawPairs.size() / 2;
+        this.rows = (columns == 0) ? 0 : 1;
+        this.types = new int[columns];
+        this.longs = new long[columns][];
+        this.objects = new Object[columns][];
+        for (int i = 0; i < columns; i++) {
+            types[i] = (Integer) rawPairs.get(i * 2);
+            objects[i] = new Object[]{rawPairs.get(i * 2 + 1)};
+        }
     }
 
     /**
@@ -24,7 +56,25 @@ public class Identities {
      * @return
      */
     public int size() {
-        return rawPairs.size() / 2;
+        return rows * types.length;
+    }
+
+    /**
+     * Number of rows with identities.
+     *
+     * @return
+     */
+    public int rows() {
+        return rows;
+    }
+
+    /**
+     * Number of identity columns per row.
+     *
+     * @return
+     */
+    public int columns() {
+        return types.length;
     }
 
     /**
@@ -37,14 +87,15 @@ public class Identities {
      * @throws java.sql.SQLException
      */
     public int type(int index) throws SQLException {
-        if ((index * 2) < rawPairs.size()) {
-            return (Integer) rawPairs.get(index * 2);
+        if ((index >= 0) && (index < size())) {
+            return types[index % types.length];
         }
         throw new SQLException("No identity type at index " + index);
     }
 
     /**
-     * Get the raw object of the identity at index.
+     * Get the raw object of the identity at index. Integral identities are
+     * returned as Long.
      *
      * @param index
      *
@@ -53,12 +104,43 @@ public class Identities {
      * @throws java.sql.SQLException
      */
     public Object raw(int index) throws SQLException {
-        if ((index * 2 + 1) < rawPairs.size()) {
-            return rawPairs.get(index * 2 + 1);
+        if ((index >= 0) && (index < size())) {
+            int column = index % types.length;
+            int row = index / types.length;
+            return (null != longs[column]) ? (Object) longs[column][row] : objects[column][row];
         }
         throw new SQLException("No identity value at index " + index);
     }
 
+    /**
+     * Identities of a column for all rows, as long values. Integral columns
+     * are returned without boxing.
+     *
+     * @param column
+     *
+     * @return
+     *
+     * @throws java.sql.SQLException
+     */
+    public long[] longValues(int column) throws SQLException {
+        if ((column < 0) || (column >= types.length)) {
+            throw new SQLException("No identity column at index " + column);
+        }
+        if (null != longs[column]) {
+            return longs[column].clone();
+        }
+
+        long[] values = new long[rows];
+        for (int row = 0; row < rows; row++) {
+            Long value = longValue(row * types.length + column);
+            if (null == value) {
+                throw new IllegalStateException("Identity at row " + row + " is null");
+            }
+            values[row] = value;
+        }
+        return values;
+    }
+
     /**
      * Returns identity as String (using JDBC type hint if needed).
      *
@@ -145,4 +227,124 @@ public class Identities {
         throw new IllegalStateException("Identity at index " + index
                 + " is not a RowId (type=" + type(index) + ", value=" + v + ")");
     }
+
+    /**
+     * Collects generated keys from one or more getGeneratedKeys() result sets.
+     * Column metadata is read once per result set.
+     */
+    public static final class Builder {
+
+        private int rows = 0;
+        private int[] types;
+        private long[][] longs;
+        private Object[][] objects;
+
+        /**
+         * Read generated keys.
+         *
+         * @param keys    result set from getGeneratedKeys(), may be null
+         * @param allRows read all rows, or only the first
+         *
+         * @return
+         *
+         * @throws SQLException
+         */
+        public Builder add(ResultSet keys, boolean allRows) throws SQLException {
+            if (null == keys) {
+                return this;
+            }
+
+            ResultSetMetaData metaData = keys.getMetaData();
+            int columns = metaData.getColumnCount();
+            if (null == types) {
+                types = new int[columns];
+                longs = new long[columns][];
+                objects = new Object[columns][];
+                for (int i = 0; i < columns; i++) {
+                    types[i] = metaData.getColumnType(i + 1);
+                    if (isIntegral(types[i], metaData.getScale(i + 1))) {
+                        longs[i] = new long[16];
+                    } else {
+                        objects[i] = new Object[16];
+                    }
+                }
+            } else if (columns != types.length) {
+                throw new SQLException("Generated keys column count changed from " + types.length + " to " + columns);
+            }
+
+            while (keys.next()) {
+                grow();
+                for (int i = 0; i < columns; i++) {
+                    if (null != longs[i]) {
+                        long value = keys.getLong(i + 1);
+                        if (keys.wasNull()) {
+                            toObjects(i);
+                            objects[i][rows] = null;
+                        } else {
+                            longs[i][rows] = value;
+                        }
+                    } else {
+                        objects[i][rows] = keys.getObject(i + 1);
+                    }
+                }
+                rows++;
+                if (!allRows) {
+                    break;
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Identities read so far.
+         *
+         * @return
+         */
+        public Identities build() {
+            if (null == types) {
+                return new Identities(0, new int[0], new long[0][], new Object[0][]);
+            }
+            long[][] l = new long[types.length][];
+            Object[][] o = new Object[types.length][];
+            for (int i = 0; i < types.length; i++) {
+                if (null != longs[i]) {
+                    l[i] = Arrays.copyOf(longs[i], rows);
+                } else {
+                    o[i] = Arrays.copyOf(objects[i], rows);
+                }
+            }
+            return new Identities(rows, types.clone(), l, o);
+        }
+
+        private void grow() {
+            for (int i = 0; i < types.length; i++) {
+                if ((null != longs[i]) && (longs[i].length == rows)) {
+                    longs[i] = Arrays.copyOf(longs[i], rows * 2);
+                } else if ((null != objects[i]) && (objects[i].length == rows)) {
+                    objects[i] = Arrays.copyOf(objects[i], rows * 2);
+                }
+            }
+        }
+
+        private void toObjects(int column) {
+            long[] values = longs[column];
+            Object[] boxed = new Object[values.length];
+            for (int row = 0; row < rows; row++) {
+                boxed[row] = values[row];
+            }
+            objects[column] = boxed;
+            longs[column] = null;
+        }
+
+        private static boolean isIntegral(int type, int scale) {
+            return switch (type) {
+                case Types.BIGINT, Types.INTEGER, Types.SMALLINT, Types.TINYINT ->
+                    true;
+                case Types.DECIMAL, Types.NUMERIC ->
+                    scale == 0;
+                default ->
+                    false;
+            };
+        }
+    }
 }
@@ -7,10 +7,14 @@ import java.util.UUID;
 /**
  * A transfer object for SQL results
  */
-public record InsertResults(ResultRows records, Identities ids, int count, boolean hasIdentities) implements QueryResults {
+public record InsertResults(ResultRows records, Identities ids, int count, boolean hasIdentities, int[] counts) implements QueryResults {
+
+    public InsertResults(ResultRows records, Identities ids, int count, boolean hasIdentities) {
+        this(records, ids, count, hasIdentities, new int[]{count});
+    }
 
     public InsertResults(ResultRows records) {
-        this(records, null, 0, false);
+        this(records, null, 0, false, new int[0]);
     }
 
     public InsertResults(Identities ids) {
@@ -21,6 +25,17 @@ public record InsertResults(ResultRows records, Identities ids, int count, boole
         this(null, null, count, false);
     }
 
+    /**
+     * Results of a batch insert. The count is the sum of the known per-row
+     * counts; rows reported as Statement.SUCCESS_NO_INFO are not included.
+     *
+     * @param ids    identities of all inserted rows, or null
+     * @param counts per-row insert counts, as returned by executeBatch()
+     */
+    public InsertResults(Identities ids, int[] counts) {
+        this(null, ids, UpdateResults.total(counts), null != ids, counts);
+    }
+
     /**
      * Returns identity JDBC type.
      *
@@ -32,6 +47,15 @@ public record InsertResults(ResultRows records, Identities ids, int count, boole
         return (null == ids) ? null : ids.type(index);
     }
 
+    /**
+     * Returns the first identity column of all inserted rows, without boxing.
+     *
+     * @return
+     */
+    public long[] longIdentities() throws SQLException {
+        return ((null == ids) || (ids.columns() == 0)) ? new long[0] : ids.longValues(0);
+    }
+
     /**
      * Returns identity as String (using JDBC type hint if needed).
      *
@@ -0,0 +1,17 @@
+package no.redeye.lib.jdax.types;
+
+/**
+ * A transfer object for execution counters of a prepared query.
+ */
+public record QueryStatistics(long executions, long failures, long elapsedNanos) {
+
+    /**
+     * Average execution time in nanoseconds, 0 if the query has not been
+     * executed.
+     *
+     * @return
+     */
+    public long averageNanos() {
+        return (executions == 0) ? 0 : elapsedNanos / executions;
+    }
+}
@@ -0,0 +1,139 @@
+package no.redeye.lib.jdax.types;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import no.redeye.lib.jdax.TypeConverter;
+
+/**
+ * RecordMapper creates records from result set rows. A mapper is built once
+ * per record class and column type signature: the constructor is resolved to
+ * a method handle, and each column gets a reader for its SQL type and the
+ * constructor's parameter type. Mapping a row then only reads and converts
+ * column values.
+ *
+ * @param <T>
+ */
+final class RecordMapper<T> {
+
+    /**
+     * Mapper cache key, the column types and null handling of a result set.
+     */
+    private record Signature(int[] types, boolean allowNulls) {
+
+        @Override
+        public boolean equals(Object o) {
+            return (o instanceof Signature s) && (allowNulls == s.allowNulls) && Arrays.equals(types, s.types);
+        }
+
+        @Override
+        public int hashCode() {
+            return (31 * Arrays.hashCode(types)) + Boolean.hashCode(allowNulls);
+        }
+    }
+
+    private static final ClassValue<Map<Signature, RecordMapper<?>>> MAPPERS = new ClassValue<>() {
+        @Override
+        protected Map<Signature, RecordMapper<?>> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private static final MethodType CONSTRUCTOR = MethodType.methodType(Object.class, Object[].class);
+
+    private final Class<T> type;
+    private final MethodHandle constructor;
+    private final TypeConverter.ColumnReader[] readers;
+
+    private RecordMapper(Class<T> type, MethodHandle constructor, TypeConverter.ColumnReader[] readers) {
+        this.type = type;
+        this.constructor = constructor;
+        this.readers = readers;
+    }
+
+    /**
+     * Mapper for a record class and result set column types, built on first
+     * use.
+     *
+     * @param <T>
+     * @param type
+     * @param columnTypes
+     * @param allowNulls
+     *
+     * @return
+     *
+     * @throws SQLException
+     */
+    @SuppressWarnings("unchecked")
+    static <T> RecordMapper<T> of(Class<T> type, int[] columnTypes, boolean allowNulls) throws SQLException {
+        Map<Signature, RecordMapper<?>> mappers = MAPPERS.get(type);
+        Signature signature = new Signature(columnTypes, allowNulls);
+        RecordMapper<?> mapper = mappers.get(signature);
+        if (null == mapper) {
+            mapper = build(type, columnTypes.clone(), allowNulls);
+            RecordMapper<?> cached = mappers.putIfAbsent(new Signature(columnTypes.clone(), allowNulls), mapper);
+            mapper = (null != cached) ? cached : mapper;
+        }
+        return (RecordMapper<T>) mapper;
+    }
+
+    /**
+     * Record class of the mapper.
+     *
+     * @return
+     */
+    Class<T> type() {
+        return type;
+    }
+
+    /**
+     * Create a record from the current row.
+     *
+     * @param rs
+     *
+     * @return
+     *
+     * @throws SQLException
+     */
+    @SuppressWarnings("unchecked")
+    T map(ResultSet rs) throws SQLException {
+        Object[] values = new Object[readers.length];
+        for (int i = 0; i < readers.length; i++) {
+            values[i] = readers[i].read(rs);
+        }
+        try {
+            return (T) (Object) constructor.invokeExact(values);
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable t) {
+            // Null values for primitive components, and constructor failures
+            throw new SQLException(t);
+        }
+    }
+
+    private static <T> RecordMapper<T> build(Class<T> type, int[] columnTypes, boolean allowNulls) throws SQLException {
+        try {
+            Constructor<T> constructor = ResultRows.findConstructors(type, columnTypes);
+            Class<?>[] parameterTypes = constructor.getParameterTypes();
+
+            TypeConverter.ColumnReader[] readers = new TypeConverter.ColumnReader[parameterTypes.length];
+            for (int i = 0; i < readers.length; i++) {
+                readers[i] = TypeConverter.reader(i + 1, columnTypes[i], allowNulls, parameterTypes[i]);
+            }
+
+            MethodHandle handle = MethodHandles.privateLookupIn(type, MethodHandles.lookup())
+                    .unreflectConstructor(constructor)
+                    .asSpreader(Object[].class, parameterTypes.length)
+                    .asType(CONSTRUCTOR);
+            return new RecordMapper<>(type, handle, readers);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new SQLException(e);
+        }
+    }
+}
@@ -6,13 +6,18 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
 import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import no.redeye.lib.jdax.TypeConverter;
 import no.redeye.lib.jdax.TypeRegistry;
 
@@ -23,14 +28,21 @@ import no.redeye.lib.jdax.TypeRegistry;
  */
 public class ResultRows extends ResultSetType implements VO {
 
+    private RecordMapper<?> mapper;
+
     public ResultRows(ResultSet resultSet, Statement statement, boolean allowNulls) throws SQLException {
         super(resultSet, statement, allowNulls);
     }
 
+    public ResultRows(ResultSet resultSet, Statement statement, Columns columns, boolean allowNulls) throws SQLException {
+        super(resultSet, statement, columns, allowNulls);
+    }
+
     /**
      * Get the results of the current row as a Java record of the given type.
      * This method requires that the row has values of the same type as the
-     * record expects.
+     * record expects. The record mapper is resolved on first use, and reused
+     * for the following rows.
      *
      * @param <T>
      * @param returnType
@@ -40,23 +52,111 @@ public class ResultRows extends ResultSetType implements VO {
      *
      * @throws java.sql.SQLException
      */
+    @SuppressWarnings("unchecked")
     public <T> T get(Class<T> returnType) throws SQLException {
-        try {
-            if (null == resultSetTypes) {
-                resultSetTypes = TypeConverter.rowTypes(resultSet);
-            }
+        if (null == resultSetTypes) {
+            resultSetTypes = TypeConverter.rowTypes(resultSet);
+        }
+        if ((null == mapper) || (mapper.type() != returnType)) {
+            mapper = RecordMapper.of(returnType, resultSetTypes, allowNulls);
+        }
+        return (T) mapper.map(resultSet);
+    }
 
-            Constructor<T> constructor = findConstructors(returnType, resultSetTypes);
-            Class<?>[] constructorParamTypes = constructor.getParameterTypes();
-            Object[] resultSetValues = resultSetValues(constructorParamTypes);
+    /**
+     * Stream the remaining rows as Java records of the given type. The stream
+     * is lazy and sequential: the cursor is advanced as records are consumed,
+     * and the rows are closed when the stream is closed or fully consumed.
+     * <p>
+     * SQLExceptions thrown while the stream is consumed are wrapped in an
+     * UncheckedSQLException.
+     *
+     * @param <T>
+     * @param returnType
+     *
+     * @return
+     */
+    public <T> Stream<T> stream(Class<T> returnType) {
+        Spliterator<T> rows = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            private boolean isDone = false;
 
-            if (resultSetValues.length != resultSetTypes.length) {
-                throw new SQLException("DAOType expects " + resultSetTypes.length + " parameters but ResultSet has " + resultSetValues.length);
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                if (isDone) {
+                    return false;
+                }
+                try {
+                    if (next()) {
+                        action.accept(get(returnType));
+                        return true;
+                    }
+                    isDone = true;
+                    close();
+                    return false;
+                } catch (SQLException e) {
+                    throw new UncheckedSQLException(e);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+        return StreamSupport.stream(rows, false).onClose(() -> {
+            try {
+                close();
+            } catch (SQLException e) {
+                throw new UncheckedSQLException(e);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
+        });
+    }
 
-            return constructor.newInstance(resultSetValues);
-        } catch (NoSuchMethodException | InstantiationException | IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
-            throw new SQLException(e);
+    /**
+     * Copy the remaining rows into memory, and close the result set and
+     * statement. The returned rows have the same getters and conversions,
+     * and hold no database resources, so the connection can be released
+     * while they are read.
+     *
+     * @return
+     *
+     * @throws SQLException
+     * @throws IOException
+     */
+    public ResultRows detach() throws SQLException, IOException {
+        try {
+            if (null == columns) {
+                throw new SQLException("No result set to read");
+            }
+            ColumnarResult.Builder builder = ColumnarResult.detached(columns, resultSet.getFetchSize());
+            while (next()) {
+                builder.add(resultSet);
+            }
+            return new ResultRows(new DetachedResultSet(builder.build()), null, columns, allowNulls);
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Read the remaining rows into column arrays, and close the rows.
+     *
+     * @return
+     *
+     * @throws SQLException
+     * @throws IOException
+     */
+    public ColumnarResult columnar() throws SQLException, IOException {
+        try {
+            if (null == columns) {
+                throw new SQLException("No result set to read");
+            }
+            ColumnarResult.Builder builder = ColumnarResult.builder(columns, allowNulls, resultSet.getFetchSize());
+            while (next()) {
+                builder.add(resultSet);
+            }
+            return builder.build();
+        } finally {
+            close();
         }
     }
 
@@ -97,41 +197,6 @@ public class ResultRows extends ResultSetType implements VO {
         return true;
     }
 
-    /**
-     * Create and return an Object[] with the ResultSet values in the order
-     * expected by the generic type constructor of the VO.
-     *
-     * @param rs
-     *
-     * @return
-     *
-     * @throws SQLException
-     */
-    private Object[] resultSetValues(Class<?>[] requestedParameterTypes) throws SQLException {
-        Object[] values = new Object[requestedParameterTypes.length];
-        for (int i = 0; i < requestedParameterTypes.length; i++) {
-            int columnIndex = (i + 1);
-            int columnType = metaData.getColumnType(columnIndex);
-            Class<?> targetType = requestedParameterTypes[i];
-            values[i] = TypeConverter.getValueForType(resultSet, columnIndex, columnType, allowNulls, targetType);
-        }
-
-        dumpit(requestedParameterTypes, values);
-        return values;
-    }
-
-    private void dumpit(Object[] expected, Object[] values) {
-        System.out.println("\n######################################");
-
-        for (int i = 0; i < expected.length; i++) {
-            System.out.printf("Param[%d]: expected=%s, \t\tgot=%s/%s%n",
-                    i,
-                    (expected[i] == null ? "null" : expected[i]),
-                    (values[i] == null ? "null" : values[i].getClass().getName()),
-                    (values[i] == null ? "null" : values[i]));
-        }
-    }
-
     /**
      * Retrieve value of indexed field as a java.time.LocalDateTime.
      *
@@ -147,7 +212,7 @@ public class ResultRows extends ResultSetType implements VO {
     }
 
     public LocalDateTime dateTime(String fieldName, ZoneId zone) throws SQLException {
-        return dateTime(fieldNames.indexOf(fieldName.toLowerCase()), zone);
+        return dateTime(column(fieldName), zone);
     }
 
     /**
@@ -172,7 +237,7 @@ public class ResultRows extends ResultSetType implements VO {
     }
 
     public byte[] blob(String fieldName) throws SQLException, IOException {
-        return blob(fieldNames.indexOf(fieldName.toLowerCase()));
+        return blob(column(fieldName));
     }
 
     /**
@@ -204,6 +269,6 @@ public class ResultRows extends ResultSetType implements VO {
     }
 
     public String clob(String fieldName) throws SQLException, IOException {
-        return clob(fieldNames.indexOf(fieldName.toLowerCase()));
+        return clob(column(fieldName));
     }
 }
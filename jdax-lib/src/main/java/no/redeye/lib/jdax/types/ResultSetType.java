@@ -13,6 +13,7 @@ import java.sql.Types;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.List;
 import no.redeye.lib.jdax.TypeConverter;
@@ -25,35 +26,96 @@ import no.redeye.lib.jdax.TypeRegistry;
  */
 public abstract class ResultSetType implements AutoCloseable {
 
-    protected final List<String> fieldNames = new ArrayList();
+    // Return types of the typed getters, see slot()
+    private static final int SLOTS = 16;
 
-    protected final Statement statement;
-    protected final ResultSet resultSet;
+    protected Statement statement;
+    protected ResultSet resultSet;
     protected ResultSetMetaData metaData;
     protected int[] resultSetTypes = null;
-    private List rowTypes = new ArrayList();
+    protected Columns columns;
+    /**
+     * Lower case column labels, at their column index, with a placeholder at
+     * index 0. A read-only view of {@link #columns()}.
+     *
+     * @deprecated use {@link #columns()} or {@link #column(String)}
+     */
+    @Deprecated
+    protected final List<String> fieldNames = new AbstractList<>() {
+        @Override
+        public String get(int index) {
+            return (index == 0) ? "noop" : columns.label(index);
+        }
+
+        @Override
+        public int size() {
+            return (null == columns) ? 0 : columns.count() + 1;
+        }
+    };
     protected final boolean allowNulls;
+    private List<Runnable> closeActions;
+    private TypeConverter.ColumnReader[][] readers; // [column][return type slot]
+    private TypeConverter.IntReader[] intReaders;
+    private TypeConverter.LongReader[] longReaders;
+    private TypeConverter.DoubleReader[] doubleReaders;
 
     public ResultSetType(ResultSet resultSet, Statement statement, boolean allowNulls) throws SQLException {
+        this(resultSet, statement, null, allowNulls);
+    }
+
+    /**
+     * Create a result set wrapper. Column metadata from an earlier execution
+     * of the same statement is reused, unless the column count has changed.
+     *
+     * @param resultSet
+     * @param statement
+     * @param columns    Column metadata from an earlier execution, or null
+     * @param allowNulls
+     *
+     * @throws SQLException
+     */
+    public ResultSetType(ResultSet resultSet, Statement statement, Columns columns, boolean allowNulls) throws SQLException {
         this.allowNulls = allowNulls;
         this.statement = statement;
         this.resultSet = resultSet;
         if (null != resultSet) {
             metaData = resultSet.getMetaData();
 
-            if (fieldNames.isEmpty()) {
-                fieldNames.add("noop");
-                for (int i = 1; i <= metaData.getColumnCount(); i++) {
-                    if (null != metaData.getColumnName(i)) {
-                        fieldNames.add(metaData.getColumnLabel(i).toLowerCase());
-                    }
-                }
-            }
+            boolean isReusable = (null != columns) && (columns.count() == metaData.getColumnCount());
+            this.columns = isReusable ? columns : Columns.of(metaData);
+            resultSetTypes = this.columns.types;
         }
     }
 
+    /**
+     * Column labels and types of the result set.
+     *
+     * @return
+     */
+    public Columns columns() {
+        return columns;
+    }
+
+    /**
+     * Resolve a column name, ignoring case, to the column index used by the
+     * index based getters. Resolve names once before reading many rows, to
+     * read by index with no name lookups.
+     *
+     * @param fieldName
+     *
+     * @return
+     *
+     * @throws SQLException if there is no column with that name
+     */
+    public int column(String fieldName) throws SQLException {
+        int index = (null != columns) ? columns.index(fieldName) : -1;
+        if (index < 1) {
+            throw new SQLException("No column named " + fieldName);
+        }
+        return index;
+    }
+
     public boolean next() throws SQLException {
-        rowTypes.clear();
         return ((null != resultSet) && resultSet.next());
     }
 
@@ -61,14 +123,74 @@ public abstract class ResultSetType implements AutoCloseable {
     public void close() throws IOException, SQLException {
         metaData = null;
         resultSetTypes = null;
-        rowTypes = null;
+        try {
+            release();
+        } finally {
+            List<Runnable> actions = closeActions;
+            closeActions = null;
+            if (null != actions) {
+                actions.forEach(Runnable::run);
+            }
+        }
+    }
+
+    /**
+     * Register an action to run once, after the result set and statement are
+     * closed.
+     *
+     * @param action
+     */
+    public void onClose(Runnable action) {
+        if (null == closeActions) {
+            closeActions = new ArrayList<>();
+        }
+        closeActions.add(action);
+    }
 
-        try (resultSet) {
-            try (statement) {
+    /**
+     * Close the current result set and its statement.
+     *
+     * @throws SQLException
+     */
+    protected void release() throws SQLException {
+        ResultSet rs = resultSet;
+        Statement st = statement;
+        resultSet = null;
+        statement = null;
+
+        try (rs) {
+            try (st) {
             }
         }
     }
 
+    /**
+     * Continue with the next result set of a query that is executed in
+     * several statements. The column metadata of the first result set is
+     * kept.
+     *
+     * @param resultSet
+     * @param statement
+     *
+     * @throws SQLException
+     */
+    protected void continueWith(ResultSet resultSet, Statement statement) throws SQLException {
+        this.resultSet = resultSet;
+        this.statement = statement;
+        this.metaData = resultSet.getMetaData();
+    }
+
+    /**
+     * Current result set of other rows, for rows that read from several.
+     *
+     * @param rows
+     *
+     * @return
+     */
+    protected static ResultSet resultSet(ResultSetType rows) {
+        return rows.resultSet;
+    }
+
     /**
      * Retrieve value of indexed field as an Object. Index starts at 1, not 0.
      *
@@ -100,7 +222,7 @@ public abstract class ResultSetType implements AutoCloseable {
     }
 
     private Object object(String fieldName, int returnType) throws SQLException {
-        return getObject(fieldNames.indexOf(fieldName.toLowerCase()), returnType);
+        return getObject(column(fieldName), returnType);
     }
 
     /**
@@ -114,11 +236,82 @@ public abstract class ResultSetType implements AutoCloseable {
      * @throws SQLException
      */
     private Object getObject(int index, int returnType) throws SQLException {
-        if ((index < 1) || (index > metaData.getColumnCount())) {
-            throw new SQLException("Row index " + index + " is out of bounds, expected range is: 1 <= index <= " + metaData.getColumnCount());
+        return reader(index, returnType).read(resultSet);
+    }
+
+    /**
+     * Reader for a column and return type. Readers for the return types of
+     * the typed getters are resolved once per column and kept in the column
+     * plan.
+     */
+    private TypeConverter.ColumnReader reader(int index, int returnType) throws SQLException {
+        checkIndex(index);
+        int count = columns.count();
+
+        int slot = slot(returnType);
+        if (slot < 0) {
+            return TypeConverter.reader(index, columns.types[index - 1], allowNulls, TypeRegistry.SQL_TO_JAVA.get(returnType));
         }
-        int columnType = metaData.getColumnType(index);
-        return (TypeConverter.getValueForType(resultSet, index, columnType, allowNulls, TypeRegistry.SQL_TO_JAVA.get(returnType)));
+        if (null == readers) {
+            readers = new TypeConverter.ColumnReader[count][];
+        }
+        TypeConverter.ColumnReader[] columnReaders = readers[index - 1];
+        if (null == columnReaders) {
+            columnReaders = new TypeConverter.ColumnReader[SLOTS];
+            readers[index - 1] = columnReaders;
+        }
+        TypeConverter.ColumnReader reader = columnReaders[slot];
+        if (null == reader) {
+            reader = TypeConverter.reader(index, columns.types[index - 1], allowNulls, TypeRegistry.SQL_TO_JAVA.get(returnType));
+            columnReaders[slot] = reader;
+        }
+        return reader;
+    }
+
+    private void checkIndex(int index) throws SQLException {
+        int count = (null != columns) ? columns.count() : 0;
+        if ((index < 1) || (index > count)) {
+            throw new SQLException("Row index " + index + " is out of bounds, expected range is: 1 <= index <= " + count);
+        }
+    }
+
+    private static int slot(int returnType) {
+        return switch (returnType) {
+            case Integer.MAX_VALUE ->
+                0;
+            case Types.DECIMAL ->
+                1;
+            case Types.BOOLEAN ->
+                2;
+            case Types.TINYINT ->
+                3;
+            case Types.DOUBLE ->
+                4;
+            case Types.REAL ->
+                5;
+            case Types.INTEGER ->
+                6;
+            case Types.BIGINT ->
+                7;
+            case Types.SMALLINT ->
+                8;
+            case Types.DATE ->
+                9;
+            case Types.TIME ->
+                10;
+            case Types.TIMESTAMP ->
+                11;
+            case Types.VARCHAR ->
+                12;
+            case Types.VARBINARY ->
+                13;
+            case Types.BLOB ->
+                14;
+            case Types.CLOB ->
+                15;
+            default ->
+                -1;
+        };
     }
 
     /**
@@ -135,7 +328,7 @@ public abstract class ResultSetType implements AutoCloseable {
     }
 
     public BigDecimal getBigDecimal(String fieldName) throws SQLException {
-        return getBigDecimal(fieldNames.indexOf(fieldName.toLowerCase()));
+        return getBigDecimal(column(fieldName));
     }
 
     /**
@@ -153,7 +346,7 @@ public abstract class ResultSetType implements AutoCloseable {
     }
 
     public BigInteger getBigInteger(String fieldName) throws SQLException {
-        return getBigInteger(fieldNames.indexOf(fieldName.toLowerCase()));
+        return getBigInteger(column(fieldName));
     }
 
     /**
@@ -170,7 +363,7 @@ public abstract class ResultSetType implements AutoCloseable {
     }
 
     public boolean getBoolean(String fieldName) throws SQLException {
-        return getBoolean(fieldNames.indexOf(fieldName.toLowerCase()));
+        return getBoolean(column(fieldName));
     }
 
     /**
@@ -187,7 +380,7 @@ public abstract class ResultSetType implements AutoCloseable {
     }
 
     public byte getByte(String fieldName) throws SQLException {
-        return getByte(fieldNames.indexOf(fieldName.toLowerCase()));
+        return getByte(column(fieldName));
     }
 
     /**
@@ -200,11 +393,20 @@ public abstract class ResultSetType implements AutoCloseable {
      * @throws SQLException
      */
     public double getDouble(int index) throws SQLException {
-        return (double) getObject(index, Types.DOUBLE);
+        checkIndex(index);
+        if (null == doubleReaders) {
+            doubleReaders = new TypeConverter.DoubleReader[columns.count()];
+        }
+        TypeConverter.DoubleReader reader = doubleReaders[index - 1];
+        if (null == reader) {
+            reader = TypeConverter.doubleReader(index, columns.types[index - 1], allowNulls);
+            doubleReaders[index - 1] = reader;
+        }
+        return reader.read(resultSet);
     }
 
     public double getDouble(String fieldName) throws SQLException {
-        return getDouble(fieldNames.indexOf(fieldName.toLowerCase()));
+        return getDouble(column(fieldName));
     }
 
     /**
@@ -221,7 +423,7 @@ public abstract class ResultSetType implements AutoCloseable {
     }
 
     public float getFloat(String fieldName) throws SQLException {
-        return getFloat(fieldNames.indexOf(fieldName.toLowerCase()));
+        return getFloat(column(fieldName));
     }
 
     /**
@@ -234,11 +436,20 @@ public abstract class ResultSetType implements AutoCloseable {
      * @throws SQLException
      */
     public int getInt(int index) throws SQLException {
-        return (int) getObject(index, Types.INTEGER);
+        checkIndex(index);
+        if (null == intReaders) {
+            intReaders = new TypeConverter.IntReader[columns.count()];
+        }
+        TypeConverter.IntReader reader = intReaders[index - 1];
+        if (null == reader) {
+            reader = TypeConverter.intReader(index, columns.types[index - 1], allowNulls);
+            intReaders[index - 1] = reader;
+        }
+        return reader.read(resultSet);
     }
 
     public int getInt(String fieldName) throws SQLException {
-        return getInt(fieldNames.indexOf(fieldName.toLowerCase()));
+        return getInt(column(fieldName));
     }
 
     /**
@@ -251,11 +462,20 @@ public abstract class ResultSetType implements AutoCloseable {
      * @throws SQLException
      */
     public long getLong(int index) throws SQLException {
-        return (long) getObject(index, Types.BIGINT);
+        checkIndex(index);
+        if (null == longReaders) {
+            longReaders = new TypeConverter.LongReader[columns.count()];
+        }
+        TypeConverter.LongReader reader = longReaders[index - 1];
+        if (null == reader) {
+            reader = TypeConverter.longReader(index, columns.types[index - 1], allowNulls);
+            longReaders[index - 1] = reader;
+        }
+        return reader.read(resultSet);
     }
 
     public long getLong(String fieldName) throws SQLException {
-        return getLong(fieldNames.indexOf(fieldName.toLowerCase()));
+        return getLong(column(fieldName));
     }
 
     /**
@@ -272,7 +492,7 @@ public abstract class ResultSetType implements AutoCloseable {
     }
 
     public short getShort(String fieldName) throws SQLException {
-        return getShort(fieldNames.indexOf(fieldName.toLowerCase()));
+        return getShort(column(fieldName));
     }
 
     /**
@@ -289,7 +509,7 @@ public abstract class ResultSetType implements AutoCloseable {
     }
 
     public LocalDate getDate(String fieldName) throws SQLException {
-        return getDate(fieldNames.indexOf(fieldName.toLowerCase()));
+        return getDate(column(fieldName));
     }
 
     /**
@@ -306,7 +526,7 @@ public abstract class ResultSetType implements AutoCloseable {
     }
 
     public LocalTime getTime(String fieldName) throws SQLException {
-        return getTime(fieldNames.indexOf(fieldName.toLowerCase()));
+        return getTime(column(fieldName));
     }
 
     /**
@@ -323,7 +543,7 @@ public abstract class ResultSetType implements AutoCloseable {
     }
 
     public Instant getTimestamp(String fieldName) throws SQLException {
-        return getTimestamp(fieldNames.indexOf(fieldName.toLowerCase()));
+        return getTimestamp(column(fieldName));
     }
 
     /**
@@ -340,7 +560,7 @@ public abstract class ResultSetType implements AutoCloseable {
     }
 
     public String getString(String fieldName) throws SQLException {
-        return getString(fieldNames.indexOf(fieldName.toLowerCase()));
+        return getString(column(fieldName));
     }
 
     /**
@@ -357,7 +577,7 @@ public abstract class ResultSetType implements AutoCloseable {
     }
 
     public byte[] getBytes(String fieldName) throws SQLException {
-        return getBytes(fieldNames.indexOf(fieldName.toLowerCase()));
+        return getBytes(column(fieldName));
     }
 
     /**
@@ -374,7 +594,7 @@ public abstract class ResultSetType implements AutoCloseable {
     }
 
     public InputStream getBinaryStream(String fieldName) throws SQLException {
-        return getBinaryStream(fieldNames.indexOf(fieldName.toLowerCase()));
+        return getBinaryStream(column(fieldName));
     }
 
     /**
@@ -391,6 +611,6 @@ public abstract class ResultSetType implements AutoCloseable {
     }
 
     public Reader getCharacterStream(String fieldName) throws SQLException {
-        return getCharacterStream(fieldNames.indexOf(fieldName.toLowerCase()));
+        return getCharacterStream(column(fieldName));
     }
 }
@@ -0,0 +1,20 @@
+package no.redeye.lib.jdax.types;
+
+/**
+ * A transfer object for transaction counters of a datasource. Wasted time is
+ * the time spent in attempts that were rolled back and retried, including the
+ * backoff delays.
+ */
+public record TransactionStatistics(long commits, long failures, long retries, long wastedNanos) {
+
+    /**
+     * Average number of retries per finished transaction, 0 if no transaction
+     * has finished.
+     *
+     * @return
+     */
+    public double retriesPerTransaction() {
+        long transactions = commits + failures;
+        return (transactions == 0) ? 0.0d : (double) retries / transactions;
+    }
+}
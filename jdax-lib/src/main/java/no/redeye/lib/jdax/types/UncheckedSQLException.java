@@ -0,0 +1,21 @@
+package no.redeye.lib.jdax.types;
+
+import java.sql.SQLException;
+
+/**
+ * Wraps an SQLException thrown while a result stream is consumed, as stream
+ * operations cannot throw checked exceptions.
+ */
+public class UncheckedSQLException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public UncheckedSQLException(SQLException cause) {
+        super(cause.getMessage(), cause);
+    }
+
+    @Override
+    public synchronized SQLException getCause() {
+        return (SQLException) super.getCause();
+    }
+}
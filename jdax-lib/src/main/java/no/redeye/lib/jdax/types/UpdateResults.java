@@ -3,6 +3,29 @@ package no.redeye.lib.jdax.types;
 /**
  * A transfer object for SQL results
  */
-public record UpdateResults( int count) implements  QueryResults{
+public record UpdateResults(int count, int[] counts) implements QueryResults {
 
+    public UpdateResults(int count) {
+        this(count, new int[]{count});
+    }
+
+    /**
+     * Results of a batch update. The count is the sum of the known per-row
+     * counts; rows reported as Statement.SUCCESS_NO_INFO are not included.
+     *
+     * @param counts per-row update counts, as returned by executeBatch()
+     */
+    public UpdateResults(int[] counts) {
+        this(total(counts), counts);
+    }
+
+    static int total(int[] counts) {
+        int total = 0;
+        for (int count : counts) {
+            if (count > 0) {
+                total += count;
+            }
+        }
+        return total;
+    }
 }
@@ -0,0 +1,100 @@
+package no.redeye.lib.jdax;
+
+import java.io.IOException;
+import java.sql.BatchUpdateException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import no.redeye.lib.jdax.types.InsertResults;
+import no.redeye.lib.jdax.types.ResultRows;
+import no.redeye.lib.jdax.types.UpdateResults;
+import no.redeye.lib.jdax.types.VO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ */
+public class JDAXBatchTests extends TestBase {
+
+    private final String TEST_TABLE = "BATCH_TABLE";
+
+    private final DAOType dao = new DAOType(DATASOURCE_NAME);
+
+    private record BatchRecord(String name, int amount) implements VO {
+
+    }
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        setUpDS(Features.AUTO_COMMIT_ENABLED, Features.USE_GENERATED_KEYS_FLAG);
+        dao.update(new Object[0], "CREATE TABLE " + TEST_TABLE + " (id INT GENERATED ALWAYS AS IDENTITY, name VARCHAR(32), amount INT)");
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        dao.update(new Object[0], "DROP TABLE " + TEST_TABLE);
+        tearDownDS();
+    }
+
+    private int sum() throws SQLException, IOException {
+        try (ResultRows rows = dao.select("SELECT SUM(amount) AS total FROM " + TEST_TABLE)) {
+            Assertions.assertTrue(rows.next());
+            return rows.getInt("total");
+        }
+    }
+
+    @Test
+    @DisplayName("When a batch fails, expect the counts of the rows sent before it")
+    public void whenBatchFailsExpectSentCounts() throws SQLException, IOException {
+        Object[][] rows = {{"one", 1}, {"two", 2}, {"three", 3}, {"four"}, {"five", 5}};
+
+        BatchUpdateException e = Assertions.assertThrows(BatchUpdateException.class,
+                () -> dao.updateBatch(rows, "INSERT INTO " + TEST_TABLE + " (name, amount) VALUES (?, ?)", 2));
+
+        Assertions.assertArrayEquals(new int[]{1, 1}, e.getUpdateCounts());
+        Assertions.assertEquals(3, sum());
+    }
+
+    @Test
+    @DisplayName("When records are inserted in batches, expect per-row counts")
+    public void whenRecordsAreInsertedInBatchesExpectCounts() throws SQLException, IOException {
+        List<BatchRecord> records = new ArrayList<>();
+        for (int i = 1; i <= 7; i++) {
+            records.add(new BatchRecord("name" + i, i));
+        }
+
+        InsertResults inserted = dao.insertBatch(records, "INSERT INTO " + TEST_TABLE + " (name, amount) VALUES (?, ?)", 3);
+        Assertions.assertEquals(7, inserted.count());
+        Assertions.assertEquals(7, inserted.counts().length);
+        Assertions.assertTrue(inserted.hasIdentities());
+        // Derby returns the key of the last row of each batch only
+        long[] keys = inserted.longIdentities();
+        Assertions.assertTrue(keys.length > 0);
+        Assertions.assertEquals(7L, keys[keys.length - 1]);
+        Assertions.assertEquals(28, sum());
+    }
+
+    @Test
+    @DisplayName("When rows are updated in batches, expect per-row counts")
+    public void whenRowsAreUpdatedInBatchesExpectCounts() throws SQLException, IOException {
+        Object[][] rows = {{"a", 1}, {"b", 2}, {"c", 3}};
+        dao.insertBatch(rows, "INSERT INTO " + TEST_TABLE + " (name, amount) VALUES (?, ?)", 10);
+
+        Object[][] updates = {{10, "a"}, {20, "b"}, {30, "x"}};
+        UpdateResults updated = dao.updateBatch(updates, "UPDATE " + TEST_TABLE + " SET amount = ? WHERE name = ?", 2);
+        Assertions.assertArrayEquals(new int[]{1, 1, 0}, updated.counts());
+        Assertions.assertEquals(2, updated.count());
+        Assertions.assertEquals(33, sum());
+    }
+
+    @Test
+    @DisplayName("Batches reject IN clauses and invalid batch sizes")
+    public void whenBatchIsInvalidExpectException() {
+        Object[][] rows = {{1}};
+        Assertions.assertThrows(SQLException.class, () -> dao.updateBatch(rows, "DELETE FROM " + TEST_TABLE + " WHERE amount IN (??)", 10));
+        Assertions.assertThrows(SQLException.class, () -> dao.updateBatch(rows, "DELETE FROM " + TEST_TABLE + " WHERE amount = ?", 0));
+    }
+}
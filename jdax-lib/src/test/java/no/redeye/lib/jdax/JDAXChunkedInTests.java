@@ -0,0 +1,74 @@
+package no.redeye.lib.jdax;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import no.redeye.lib.jdax.types.ResultRows;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ */
+public class JDAXChunkedInTests extends TestBase {
+
+    private final String TEST_TABLE = "CHUNKED_IN_TABLE";
+
+    private final DAOType dao = new DAOType(DATASOURCE_NAME);
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        setUpDS(Map.of(Settings.IN_CLAUSE_MAX_PARAMETERS, 4), Features.AUTO_COMMIT_ENABLED);
+        dao.update(new Object[0], "CREATE TABLE " + TEST_TABLE + " (id INT, name VARCHAR(32))");
+
+        Object[][] rows = new Object[10][];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = new Object[]{i, (i % 2 == 0) ? "even" : "odd"};
+        }
+        dao.insertBatch(rows, "INSERT INTO " + TEST_TABLE + " (id, name) VALUES (?, ?)", 10);
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        dao.update(new Object[0], "DROP TABLE " + TEST_TABLE);
+        tearDownDS();
+    }
+
+    @Test
+    @DisplayName("Oversized IN clauses are split, and the largest clause is chunked")
+    public void whenInClauseIsOversizedExpectChunks() throws SQLException {
+        SQLTemplate template = SQLTemplate.of("select * from dvo where name = ? and id in (??) and kind in (??)");
+        Object[][] ins = {{1, 2, 3, 4, 5, 6, 7}, {"a"}};
+
+        Assertions.assertNull(template.split(new Object[]{"x"}, ins, 0, 0, null));
+        Assertions.assertNull(template.split(new Object[]{"x"}, ins, 9, 0, null));
+
+        List<Object[][]> chunks = template.split(new Object[]{"x"}, ins, 5, 0, null);
+        Assertions.assertEquals(3, chunks.size());
+        Assertions.assertArrayEquals(new Object[]{1, 2, 3}, chunks.get(0)[0]);
+        Assertions.assertArrayEquals(new Object[]{7}, chunks.get(2)[0]);
+        Assertions.assertArrayEquals(new Object[]{"a"}, chunks.get(2)[1]);
+
+        Assertions.assertThrows(SQLException.class, () -> template.split(new Object[]{"x"}, ins, 2, 0, null));
+    }
+
+    @Test
+    @DisplayName("When an IN clause exceeds the parameter limit, expect the rows of all statements")
+    public void whenInClauseExceedsLimitExpectAllRows() throws SQLException, IOException {
+        Object[] ids = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 42};
+        Set<Integer> found = new HashSet<>();
+
+        try (ResultRows rows = dao.select(new Object[]{"even"}, "SELECT id FROM " + TEST_TABLE + " WHERE name = ? AND id IN (??)", ids)) {
+            while (rows.next()) {
+                Assertions.assertTrue(found.add(rows.getInt("id")));
+            }
+            Assertions.assertFalse(rows.next());
+        }
+        Assertions.assertEquals(Set.of(0, 2, 4, 6, 8), found);
+    }
+}
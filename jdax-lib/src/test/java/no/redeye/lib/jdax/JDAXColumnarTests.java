@@ -0,0 +1,105 @@
+package no.redeye.lib.jdax;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.Map;
+import no.redeye.lib.jdax.types.ColumnarResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ */
+public class JDAXColumnarTests extends TestBase {
+
+    private final String TEST_TABLE = "COLUMNAR_TABLE";
+
+    private final DAOType dao = new DAOType(DATASOURCE_NAME);
+
+    private void setUp(Features... features) throws SQLException {
+        setUpDS(Map.of(Settings.FETCH_SIZE, 8), features);
+        dao.update(new Object[0], "CREATE TABLE " + TEST_TABLE + " (id INT, total BIGINT, ratio DOUBLE, name VARCHAR(32), price DECIMAL(10,2))");
+
+        Object[][] rows = new Object[100][];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = new Object[]{i, i * 1000000000L, i / 4.0, "name" + (i % 3), new BigDecimal(i + ".25")};
+        }
+        rows[7] = new Object[]{7, null, null, null, null};
+        dao.insertBatch(rows, "INSERT INTO " + TEST_TABLE + " (id, total, ratio, name, price) VALUES (?, ?, ?, ?, ?)", 50);
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        dao.update(new Object[0], "DROP TABLE " + TEST_TABLE);
+        tearDownDS();
+    }
+
+    @Test
+    @DisplayName("Rows are read into primitive and dictionary encoded columns, with null bitmaps")
+    public void whenResultIsColumnarExpectTypedColumns() throws SQLException {
+        setUp(Features.AUTO_COMMIT_ENABLED);
+
+        ColumnarResult result = dao.columnar("SELECT id, total, ratio, name, price FROM " + TEST_TABLE + " ORDER BY id");
+        Assertions.assertEquals(100, result.rows());
+
+        int[] ids = result.ints(result.column("ID"));
+        long[] totals = result.longs(2);
+        double[] ratios = result.doubles(result.column("ratio"));
+        Assertions.assertEquals(100, ids.length);
+        Assertions.assertEquals(99, ids[99]);
+        Assertions.assertEquals(99000000000L, totals[99]);
+        Assertions.assertEquals(24.75, ratios[99]);
+
+        Assertions.assertEquals(3, result.dictionary(4).length);
+        Assertions.assertEquals("name2", result.getString(4, 98));
+        Assertions.assertEquals(-1, result.codes(4)[7]);
+        Assertions.assertEquals(new BigDecimal("98.25"), result.getObject(5, 98));
+        Assertions.assertEquals(98, result.getInt(5, 98));
+
+        for (int column = 2; column <= 5; column++) {
+            Assertions.assertTrue(result.isNull(column, 7));
+            Assertions.assertFalse(result.isNull(column, 8));
+            Assertions.assertNull(result.getObject(column, 7));
+        }
+        Assertions.assertEquals(0L, result.getLong(2, 7));
+
+        Assertions.assertThrows(SQLException.class, () -> result.longs(1));
+        Assertions.assertThrows(SQLException.class, () -> result.column("missing"));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> result.getInt(1, 100));
+    }
+
+    @Test
+    @DisplayName("Null values read as defaults when null results are disabled")
+    public void whenNullResultsAreDisabledExpectDefaults() throws SQLException {
+        setUp(Features.AUTO_COMMIT_ENABLED, Features.NULL_RESULTS_DISABLED);
+
+        ColumnarResult result = dao.columnar(new Object[]{7}, "SELECT id, total, name FROM " + TEST_TABLE + " WHERE id = ?");
+        Assertions.assertEquals(1, result.rows());
+        Assertions.assertTrue(result.isNull(2, 0));
+        Assertions.assertEquals(0L, result.getObject(2, 0));
+        Assertions.assertEquals("", result.getString(3, 0));
+    }
+
+    @Test
+    @DisplayName("Objects are read as their canonical type, and character columns are not read as numbers")
+    public void whenColumnIsNarrowOrCharacterExpectCanonicalTypes() throws SQLException {
+        setUp(Features.AUTO_COMMIT_ENABLED);
+        dao.update(new Object[0], "CREATE TABLE NARROW_TABLE (small SMALLINT, single REAL, code VARCHAR(8))");
+        try {
+            dao.update(new Object[]{(short) 3, 1.5f, "42"}, "INSERT INTO NARROW_TABLE (small, single, code) VALUES (?, ?, ?)");
+
+            ColumnarResult result = dao.columnar("SELECT small, single, code FROM NARROW_TABLE");
+            Assertions.assertEquals((short) 3, result.getObject(1, 0));
+            Assertions.assertEquals(1.5f, result.getObject(2, 0));
+            Assertions.assertEquals(3, result.getInt(1, 0));
+            Assertions.assertEquals(1.5, result.getDouble(2, 0));
+
+            Assertions.assertThrows(SQLException.class, () -> result.getInt(3, 0));
+            Assertions.assertThrows(SQLException.class, () -> result.getLong(3, 0));
+            Assertions.assertThrows(SQLException.class, () -> result.getDouble(3, 0));
+        } finally {
+            dao.update(new Object[0], "DROP TABLE NARROW_TABLE");
+        }
+    }
+}
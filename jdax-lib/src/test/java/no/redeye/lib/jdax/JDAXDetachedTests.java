@@ -0,0 +1,154 @@
+package no.redeye.lib.jdax;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import no.redeye.lib.jdax.types.ResultRows;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ */
+public class JDAXDetachedTests extends TestBase {
+
+    private final String TEST_TABLE = "DETACHED_TABLE";
+
+    private final String SELECT = "SELECT id, total, price, name, code, created, day, data, notes FROM " + TEST_TABLE + " ORDER BY id";
+
+    private final DAOType dao = new DAOType(DATASOURCE_NAME);
+
+    public record DetachedRecord(int id, long total, BigDecimal price, String name) {
+
+    }
+
+    private void setUp(Features... features) throws SQLException {
+        setUpDS(features);
+        dao.update(new Object[0], "CREATE TABLE " + TEST_TABLE + " (id INT, total BIGINT, price DECIMAL(10,2), name VARCHAR(32), code CHAR(4),"
+                + " created TIMESTAMP, day DATE, data BLOB, notes CLOB)");
+
+        Object[][] rows = new Object[30][];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = new Object[]{i, i * 10L, new BigDecimal(i + ".50"), "name" + i, "c" + i,
+                Instant.parse("2024-01-01T10:15:30.123456Z").plusSeconds(i), LocalDate.of(2024, 1, 1).plusDays(i),
+                ("blob" + i).getBytes(), "clob" + i};
+        }
+        rows[5] = new Object[]{5, null, null, null, null, null, null, null, null};
+        dao.insertBatch(rows, "INSERT INTO " + TEST_TABLE + " (id, total, price, name, code, created, day, data, notes) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", 30);
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        dao.update(new Object[0], "DROP TABLE " + TEST_TABLE);
+        tearDownDS();
+    }
+
+    private List<List<Object>> read(ResultRows rows) throws SQLException, IOException {
+        List<List<Object>> values = new ArrayList<>();
+        while (rows.next()) {
+            List<Object> row = new ArrayList<>();
+            row.add(rows.getInt(1));
+            row.add(rows.getLong("total"));
+            row.add(rows.getDouble(2));
+            row.add(rows.getBigDecimal(3));
+            row.add(rows.getString(4));
+            row.add(rows.getObject(5));
+            row.add(rows.getTimestamp(6));
+            row.add(rows.getDate("day"));
+            InputStream data = rows.getBinaryStream(8);
+            row.add((null == data) ? null : new String(data.readAllBytes()));
+            Reader notes = rows.getCharacterStream(9);
+            row.add((null == notes) ? null : new BufferedReader(notes).readLine());
+            values.add(row);
+        }
+        rows.close();
+        return values;
+    }
+
+    @Test
+    @DisplayName("Detached rows read the same values as the live result set, after the connection is closed")
+    public void whenRowsAreDetachedExpectSameValues() throws SQLException, IOException {
+        setUp(Features.AUTO_COMMIT_ENABLED);
+
+        List<List<Object>> live = read(dao.select(SELECT));
+
+        Connection connection = Connector.connection(DATASOURCE_NAME);
+        ResultRows detached;
+        try (ResultRows rows = dao.select(SELECT)) {
+            detached = rows.detach();
+        }
+        Connector.close(DATASOURCE_NAME);
+        Assertions.assertTrue(connection.isClosed());
+
+        List<List<Object>> values = read(detached);
+        Assertions.assertEquals(30, values.size());
+        Assertions.assertEquals(live, values);
+        Assertions.assertEquals("clob29", values.get(29).get(9));
+        Assertions.assertNull(values.get(5).get(3));
+    }
+
+    @Test
+    @DisplayName("Selects return detached rows when the feature is enabled")
+    public void whenDetachedResultsAreEnabledExpectRecords() throws SQLException, IOException {
+        setUp(Features.AUTO_COMMIT_ENABLED, Features.DETACHED_RESULTS, Features.NULL_RESULTS_DISABLED);
+
+        try (ResultRows rows = dao.select(new Object[]{3, 5}, "SELECT id, total, price, name FROM " + TEST_TABLE + " WHERE id IN (?, ?) ORDER BY id")) {
+            Connector.close(DATASOURCE_NAME);
+
+            Assertions.assertTrue(rows.next());
+            Assertions.assertEquals(new DetachedRecord(3, 30L, new BigDecimal("3.50"), "name3"), rows.get(DetachedRecord.class));
+            Assertions.assertTrue(rows.next());
+            Assertions.assertEquals(new DetachedRecord(5, 0L, BigDecimal.ZERO, ""), rows.get(DetachedRecord.class));
+            Assertions.assertFalse(rows.next());
+            Assertions.assertThrows(SQLException.class, () -> rows.getInt(1));
+        }
+    }
+
+    @Test
+    @DisplayName("Detached rows read small integer, real, boolean and time columns as the live result set does")
+    public void whenTypedGettersReadDetachedRowsExpectSameValues() throws SQLException, IOException {
+        setUp(Features.AUTO_COMMIT_ENABLED);
+        dao.update(new Object[0], "CREATE TABLE DETACHED_TYPES (id SMALLINT, ratio REAL, amount DOUBLE, flag BOOLEAN, opened TIME)");
+        try {
+            dao.insertBatch(new Object[][]{
+                {(short) 1, 1.5f, 2.25d, true, LocalTime.of(10, 15, 30)},
+                {(short) 2, null, null, null, null}
+            }, "INSERT INTO DETACHED_TYPES (id, ratio, amount, flag, opened) VALUES (?, ?, ?, ?, ?)", 2);
+
+            String select = "SELECT id, ratio, amount, flag, opened FROM DETACHED_TYPES ORDER BY id";
+            List<List<Object>> live = readTypes(dao.select(select));
+            ResultRows detached;
+            try (ResultRows rows = dao.select(select)) {
+                detached = rows.detach();
+            }
+            List<List<Object>> values = readTypes(detached);
+
+            Assertions.assertEquals(live, values);
+            Assertions.assertEquals(List.of((short) 1, 1, 1.5f, 2.25d, 2L, true, LocalTime.of(10, 15, 30)), values.get(0));
+            Assertions.assertNull(values.get(1).get(6));
+        } finally {
+            dao.update(new Object[0], "DROP TABLE DETACHED_TYPES");
+        }
+    }
+
+    private List<List<Object>> readTypes(ResultRows rows) throws SQLException, IOException {
+        List<List<Object>> values = new ArrayList<>();
+        while (rows.next()) {
+            values.add(Arrays.asList(rows.getShort(1), rows.getInt("id"), rows.getFloat(2), rows.getDouble(3),
+                    rows.getLong(3), rows.getBoolean(4), rows.getTime(5)));
+        }
+        rows.close();
+        return values;
+    }
+}
@@ -1,13 +1,21 @@
 package no.redeye.lib.jdax;
 
 import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Types;
+import javax.sql.DataSource;
+import no.redeye.lib.jdax.types.Identities;
 import no.redeye.lib.jdax.types.InsertResults;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 /**
@@ -53,4 +61,61 @@ public class JDAXFeaturesInsertIdentitiesTests extends JDAXFeaturesTestBase {
         Assertions.assertNull( inserts.longIdentity(0));
     }
 
+    @Test
+    @DisplayName("Generated keys of all rows are kept, integral keys without boxing")
+    public void givenManyGeneratedKeys_thenAllRowsReturned() throws SQLException {
+        ResultSetMetaData metaData = Mockito.mock(ResultSetMetaData.class);
+        Mockito.when(metaData.getColumnCount()).thenReturn(2);
+        Mockito.when(metaData.getColumnType(1)).thenReturn(Types.BIGINT);
+        Mockito.when(metaData.getColumnType(2)).thenReturn(Types.VARCHAR);
+
+        ResultSet keys = Mockito.mock(ResultSet.class);
+        Mockito.when(keys.getMetaData()).thenReturn(metaData);
+        Mockito.when(keys.next()).thenReturn(true, true, true, false);
+        Mockito.when(keys.getLong(1)).thenReturn(10L, 20L, 30L);
+        Mockito.when(keys.getObject(2)).thenReturn("a", "b", "c");
+
+        Identities ids = new Identities.Builder().add(keys, true).build();
+        Mockito.verify(keys, Mockito.times(1)).getMetaData();
+
+        Assertions.assertEquals(3, ids.rows());
+        Assertions.assertEquals(2, ids.columns());
+        Assertions.assertEquals(6, ids.size());
+        Assertions.assertArrayEquals(new long[]{10L, 20L, 30L}, ids.longValues(0));
+        Assertions.assertEquals(20L, ids.longValue(2));
+        Assertions.assertEquals("b", ids.stringValue(3));
+        Assertions.assertEquals(Types.VARCHAR, ids.type(5));
+
+        InsertResults inserts = new InsertResults(ids, new int[]{1, 1, 1});
+        Assertions.assertEquals(3, inserts.count());
+        Assertions.assertArrayEquals(new long[]{10L, 20L, 30L}, inserts.longIdentities());
+    }
+
+    @Test
+    @DisplayName("Generated keys of every row are returned when one statement inserts several rows")
+    public void givenMultiRowInsert_thenAllKeysReturned() throws SQLException {
+        String sql = "INSERT INTO t (name) VALUES (?), (?), (?)";
+        ResultSetMetaData metaData = Mockito.mock(ResultSetMetaData.class);
+        Mockito.when(metaData.getColumnCount()).thenReturn(1);
+        Mockito.when(metaData.getColumnType(1)).thenReturn(Types.INTEGER);
+
+        ResultSet keys = Mockito.mock(ResultSet.class);
+        Mockito.when(keys.getMetaData()).thenReturn(metaData);
+        Mockito.when(keys.next()).thenReturn(true, true, true, false);
+        Mockito.when(keys.getLong(1)).thenReturn(7L, 8L, 9L);
+
+        PreparedStatement ps = Mockito.mock(PreparedStatement.class);
+        Mockito.when(ps.executeUpdate()).thenReturn(3);
+        Mockito.when(ps.getGeneratedKeys()).thenReturn(keys);
+        Connection connection = Mockito.mock(Connection.class);
+        Mockito.when(connection.prepareStatement(sql, new String[]{"ID"})).thenReturn(ps);
+        DataSource dataSource = Mockito.mock(DataSource.class);
+        Mockito.when(dataSource.getConnection()).thenReturn(connection);
+
+        Connector.prepare(DATASOURCE_NAME, dataSource, Features.AUTO_COMMIT_ENABLED);
+        InsertResults inserts = new DAOType(DATASOURCE_NAME).insert(new Object[]{"a", "b", "c"}, sql, "ID");
+
+        Assertions.assertArrayEquals(new long[]{7L, 8L, 9L}, inserts.longIdentities());
+        Assertions.assertEquals(3, inserts.count());
+    }
 }
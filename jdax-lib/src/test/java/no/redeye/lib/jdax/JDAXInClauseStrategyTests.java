@@ -0,0 +1,192 @@
+package no.redeye.lib.jdax;
+
+import java.io.IOException;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import no.redeye.lib.jdax.types.ResultRows;
+import no.redeye.lib.jdax.types.UpdateResults;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+/**
+ */
+public class JDAXInClauseStrategyTests extends TestBase {
+
+    private final String TEST_TABLE = "IN_STRATEGY_TABLE";
+    private final String SELECT = "SELECT id FROM " + TEST_TABLE + " WHERE id IN (??) AND name IN (??)";
+
+    private final DAOType dao = new DAOType(DATASOURCE_NAME);
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        setUpDS(Map.of(Settings.IN_CLAUSE_TEMP_TABLE_SIZE, 5), Features.AUTO_COMMIT_ENABLED);
+        dao.update(new Object[0], "CREATE TABLE " + TEST_TABLE + " (id INT, name VARCHAR(32))");
+
+        Object[][] rows = new Object[10][];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = new Object[]{i, "name" + i};
+        }
+        dao.insertBatch(rows, "INSERT INTO " + TEST_TABLE + " (id, name) VALUES (?, ?)", 10);
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        dao.update(new Object[0], "DROP TABLE " + TEST_TABLE);
+        tearDownDS();
+    }
+
+    private Set<Integer> select(Object[] ids, Object[] names) throws SQLException {
+        try (ResultRows rows = dao.select(SELECT, ids, names)) {
+            return ids(rows);
+        } catch (IOException e) {
+            throw new SQLException(e);
+        }
+    }
+
+    private Set<Integer> ids(ResultRows rows) throws SQLException {
+        Set<Integer> found = new HashSet<>();
+        while (rows.next()) {
+            found.add(rows.getInt("id"));
+        }
+        return found;
+    }
+
+    @Test
+    @DisplayName("Large IN clauses are loaded into temporary tables, and tables are reused")
+    public void whenInClauseIsLargeExpectTemporaryTable() throws SQLException, IOException {
+        Object[] names = {"name1", "name2", "name3", "name4", "name5", "name6"};
+
+        Assertions.assertEquals(Set.of(2, 4, 6), select(new Object[]{2, 4, 6, 8, 10, 12}, names));
+        Assertions.assertEquals(Set.of(1, 3, 5), select(new Object[]{1, 3, 5, 7, 9, 11}, names));
+        Assertions.assertEquals(Set.of(1), select(new Object[]{1}, names));
+    }
+
+    @Test
+    @DisplayName("Open rows keep their own temporary tables while other queries load theirs")
+    public void whenRowsAreOpenExpectOwnTemporaryTables() throws SQLException, IOException {
+        Object[] names = {"name1", "name2", "name3", "name4", "name5", "name6"};
+
+        try (ResultRows even = dao.select(SELECT, new Object[]{2, 4, 6, 8, 10, 12}, names);
+                ResultRows odd = dao.select(SELECT, new Object[]{1, 3, 5, 7, 9, 11}, names)) {
+            Assertions.assertEquals(Set.of(2, 4, 6), ids(even));
+            Assertions.assertEquals(Set.of(1, 3, 5), ids(odd));
+        }
+        Assertions.assertEquals(Set.of(2, 4, 6), select(new Object[]{2, 4, 6, 8, 10, 12}, names));
+
+        Connector.inScope(DATASOURCE_NAME, () -> {
+            Connection connection = Connector.connection(DATASOURCE_NAME);
+            InClauseStrategy strategy = InClauseStrategy.temporaryTable();
+            String first = strategy.apply(connection, 0, new Object[]{1}, new ArrayList<>());
+            String second = strategy.apply(connection, 0, new Object[]{2}, new ArrayList<>());
+            Assertions.assertNotEquals(first, second);
+            strategy.release(connection, first);
+            Assertions.assertEquals(first, strategy.apply(connection, 0, new Object[]{3}, new ArrayList<>()));
+            strategy.release(connection, first);
+            strategy.release(connection, second);
+            return null;
+        });
+    }
+
+    @Test
+    @DisplayName("Temporary tables declared in a rolled back transaction are declared again")
+    public void whenDeclareIsRolledBackExpectTableDeclaredAgain() throws SQLException {
+        Object[] ids = {2, 4, 6, 8, 10, 12};
+        Object[] names = {"name1", "name2", "name3", "name4", "name5", "name6"};
+
+        Connector.inScope(DATASOURCE_NAME, () -> {
+            Assertions.assertThrows(IllegalStateException.class, () -> Connector.inTransaction(DATASOURCE_NAME, Connection.TRANSACTION_READ_COMMITTED, () -> {
+                Assertions.assertEquals(Set.of(2, 4, 6), select(ids, names));
+                throw new IllegalStateException("rolled back");
+            }));
+            Assertions.assertEquals(Set.of(2, 4, 6), select(ids, names));
+            return null;
+        });
+    }
+
+    @Test
+    @DisplayName("Small IN clauses are expanded, and updates use the same strategies")
+    public void whenInClauseIsSmallExpectExpansion() throws SQLException, IOException {
+        Assertions.assertEquals(Set.of(1, 2), select(new Object[]{1, 2, 3}, new Object[]{"name1", "name2"}));
+
+        UpdateResults deleted = dao.update((Object[]) null, "DELETE FROM " + TEST_TABLE + " WHERE id IN (??)", new Object[]{1, 2, 3, 4, 5, 6});
+        Assertions.assertEquals(6, deleted.count());
+    }
+
+    @Test
+    @DisplayName("Array strategy binds the IN clause as one array parameter")
+    public void whenArrayStrategyIsUsedExpectArrayParameter() throws SQLException {
+        Connection connection = Mockito.mock(Connection.class);
+        Array array = Mockito.mock(Array.class);
+        Object[] in = {1, 2, 3};
+        Mockito.when(connection.createArrayOf("INTEGER", in)).thenReturn(array);
+
+        List<Object> binds = new ArrayList<>();
+        Assertions.assertEquals("SELECT * FROM UNNEST(?)", InClauseStrategy.array().apply(connection, 0, in, binds));
+        Assertions.assertEquals(List.of(array), binds);
+
+        Assertions.assertNull(InClauseStrategy.array().apply(connection, 0, new Object[]{new Object()}, binds));
+    }
+
+    @Test
+    @DisplayName("IN clause strategies can be replaced by DAOType subclasses")
+    public void whenStrategyIsOverriddenExpectCustomReplacement() throws SQLException, IOException {
+        DAOType custom = new DAOType(DATASOURCE_NAME) {
+            @Override
+            protected InClauseStrategy inClauseStrategy(int size) {
+                return (connection, index, in, binds) -> {
+                    binds.add(in[0]);
+                    return "?";
+                };
+            }
+        };
+
+        try (ResultRows rows = custom.select("SELECT id FROM " + TEST_TABLE + " WHERE id IN (??)", new Object[]{7, 8, 9})) {
+            Assertions.assertTrue(rows.next());
+            Assertions.assertEquals(7, rows.getInt("id"));
+            Assertions.assertFalse(rows.next());
+        }
+    }
+
+    @Test
+    @DisplayName("Write statements release their IN clause strategies once they have executed")
+    public void whenUpdateUsesStrategyExpectReleaseAfterExecution() throws SQLException {
+        List<Integer> remaining = new ArrayList<>();
+        DAOType custom = new DAOType(DATASOURCE_NAME) {
+            @Override
+            protected InClauseStrategy inClauseStrategy(int size) {
+                return new InClauseStrategy() {
+                    @Override
+                    public String apply(Connection connection, int index, Object[] in, List<Object> binds) {
+                        binds.add(in[0]);
+                        return "?";
+                    }
+
+                    @Override
+                    public void release(Connection connection, String sql) {
+                        try (Statement st = connection.createStatement(); ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM " + TEST_TABLE + " WHERE id = 7")) {
+                            rs.next();
+                            remaining.add(rs.getInt(1));
+                        } catch (SQLException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }
+                };
+            }
+        };
+
+        Assertions.assertEquals(1, custom.update((Object[]) null, "DELETE FROM " + TEST_TABLE + " WHERE id IN (??)", new Object[]{7}).count());
+        Assertions.assertEquals(List.of(0), remaining);
+    }
+}
@@ -0,0 +1,74 @@
+package no.redeye.lib.jdax;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Map;
+import no.redeye.lib.jdax.types.InsertResults;
+import no.redeye.lib.jdax.types.ResultRows;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ */
+public class JDAXMultiRowInsertTests extends TestBase {
+
+    private final String TEST_TABLE = "MULTI_ROW_TABLE";
+    private final String INSERT = "INSERT INTO " + TEST_TABLE + " (name, kind, amount) VALUES (#, ?, #42, ?)";
+
+    private final DAOType dao = new DAOType(DATASOURCE_NAME);
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        setUpDS(Map.of(Settings.INSERT_ROWS_PER_STATEMENT, 4), Features.AUTO_COMMIT_ENABLED);
+        dao.update(new Object[0], "CREATE TABLE " + TEST_TABLE + " (id INT GENERATED ALWAYS AS IDENTITY, name VARCHAR(32), kind INT, amount INT)");
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        dao.update(new Object[0], "DROP TABLE " + TEST_TABLE);
+        tearDownDS();
+    }
+
+    @Test
+    @DisplayName("Single-row inserts are rewritten to multi-row VALUES statements")
+    public void whenInsertIsRewrittenExpectMultiRowStatements() throws SQLException {
+        MultiRowInsert insert = SQLTemplate.of(INSERT).multiRowInsert();
+        Assertions.assertTrue(insert.isSupported());
+        Assertions.assertEquals("INSERT INTO " + TEST_TABLE + " (name, kind, amount) VALUES (?, 42, ?), (?, 42, ?)", insert.sql(2));
+        Assertions.assertSame(insert.sql(2), insert.sql(2));
+
+        Assertions.assertEquals(4, MultiRowInsert.chunk(11, 4));
+        Assertions.assertEquals(2, MultiRowInsert.chunk(3, 4));
+        Assertions.assertEquals(1, MultiRowInsert.chunk(1, 4));
+
+        Assertions.assertFalse(MultiRowInsert.of("INSERT INTO t (a) SELECT a FROM s").isSupported());
+        Assertions.assertFalse(MultiRowInsert.of("INSERT INTO t (a) VALUES (?), (?)").isSupported());
+        Assertions.assertFalse(MultiRowInsert.of("INSERT INTO t (a) SELECT 'VALUES (?)' FROM s").isSupported());
+        Assertions.assertFalse(MultiRowInsert.of("INSERT INTO t (a) /* VALUES (?) */ SELECT a FROM s").isSupported());
+        Assertions.assertEquals("INSERT INTO t (a) VALUES (? /* ) */), (? /* ) */) -- VALUES (?)",
+                MultiRowInsert.of("INSERT INTO t (a) VALUES (? /* ) */) -- VALUES (?)").sql(2));
+    }
+
+    @Test
+    @DisplayName("When rows are inserted with multi-row VALUES statements, expect all rows")
+    public void whenRowsAreInsertedWithMultiRowStatementsExpectAllRows() throws SQLException, IOException {
+        Object[][] rows = new Object[11][];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = new Object[]{null, "name" + i, null, i};
+        }
+
+        InsertResults inserted = dao.insertBatch(rows, INSERT, 100);
+        Assertions.assertEquals(11, inserted.count());
+        Assertions.assertEquals(11, inserted.counts().length);
+
+        try (ResultRows result = dao.select("SELECT COUNT(*) AS total, SUM(amount) AS amount, MIN(kind) AS kind FROM " + TEST_TABLE)) {
+            Assertions.assertTrue(result.next());
+            Assertions.assertEquals(11, result.getInt("total"));
+            Assertions.assertEquals(55, result.getInt("amount"));
+            Assertions.assertEquals(42, result.getInt("kind"));
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package no.redeye.lib.jdax;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import no.redeye.lib.jdax.types.QueryInputs;
+import no.redeye.lib.jdax.types.ResultRows;
+import no.redeye.lib.jdax.types.UpdateResults;
+import no.redeye.lib.jdax.types.VO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ */
+public class JDAXNamedParameterTests extends TestBase {
+
+    private final String TEST_TABLE = "NAMED_TABLE";
+
+    private final DAOType dao = new DAOType(DATASOURCE_NAME);
+
+    private record NamedRecord(int id, String name, int amount) implements VO {
+
+    }
+
+    private record OtherRecord(String name, int amount, int id) implements VO {
+
+    }
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        setUpDS(Features.AUTO_COMMIT_ENABLED);
+        dao.update(new Object[0], "CREATE TABLE " + TEST_TABLE + " (id INT, name VARCHAR(32), amount INT, low INT, high INT)");
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        dao.update(new Object[0], "DROP TABLE " + TEST_TABLE);
+        tearDownDS();
+    }
+
+    @Test
+    @DisplayName("Named markers render as ? and bind by name, repeated names bind the same value")
+    public void whenTemplateHasNamesExpectResolvedBinds() throws SQLException {
+        SQLTemplate template = SQLTemplate.of("select * from dvo where name = :name and (low <= :amount and high >= :amount) and id in (??)");
+        Assertions.assertTrue(template.isNamed());
+
+        QueryInputs qi = template.forMap().render(template.mapValues(Map.of("name", "n", "amount", 5)), new Object[][]{{1, 2}});
+        Assertions.assertEquals("select * from dvo where name =? and (low <=? and high >=?) and id in (?,?)", qi.sql());
+        Assertions.assertArrayEquals(new Object[]{"n", 5, 5, 1, 2}, qi.values());
+
+        SQLTemplate resolved = template.forRecord(OtherRecord.class);
+        Assertions.assertSame(resolved, template.forRecord(OtherRecord.class));
+        qi = resolved.render(new Object[]{"m", 7, 3}, new Object[][]{{3}});
+        Assertions.assertArrayEquals(new Object[]{"m", 7, 7, 3}, qi.values());
+    }
+
+    @Test
+    @DisplayName("Casts and quoted colons are not named markers")
+    public void whenColonIsNotAMarkerExpectUnchangedSql() throws SQLException {
+        SQLTemplate template = SQLTemplate.of("select id::text, ':skip' from dvo where name = :name");
+
+        QueryInputs qi = template.forMap().render(template.mapValues(Map.of("name", "n")), null);
+        Assertions.assertEquals("select id::text, ':skip' from dvo where name =?", qi.sql());
+        Assertions.assertArrayEquals(new Object[]{"n"}, qi.values());
+        Assertions.assertFalse(SQLTemplate.of("select id::text from dvo where id = ?").isNamed());
+    }
+
+    @Test
+    @DisplayName("Colons in positional statements are kept as written")
+    public void whenStatementIsPositionalExpectColonsKept() throws SQLException {
+        SQLTemplate slice = SQLTemplate.of("select a[1:n] from dvo where id = ?");
+        Assertions.assertFalse(slice.isNamed());
+        QueryInputs qi = slice.render(new Object[]{1}, null);
+        Assertions.assertEquals("select a[1:n] from dvo where id =?", qi.sql());
+        Assertions.assertArrayEquals(new Object[]{1}, qi.values());
+
+        String trigger = "CREATE TRIGGER dvo_audit BEFORE UPDATE ON dvo FOR EACH ROW BEGIN :new.amount := :old.amount; END;";
+        SQLTemplate template = SQLTemplate.of(trigger);
+        Assertions.assertTrue(template.isNamed());
+        Assertions.assertSame(template.positional(), template.positional());
+        Assertions.assertEquals(trigger, template.positional().render(new Object[0], null).sql());
+        Assertions.assertEquals(0, template.positional().parameterCount());
+    }
+
+    @Test
+    @DisplayName("Missing names, mixed markers and positional values are rejected")
+    public void whenNamesCannotBeResolvedExpectException() throws SQLException {
+        SQLTemplate template = SQLTemplate.of("select * from dvo where name = :name and id = :missing");
+
+        Assertions.assertThrows(SQLException.class, () -> template.forRecord(NamedRecord.class).render(null, null));
+        Assertions.assertThrows(SQLException.class, () -> template.forMap().render(template.mapValues(Map.of("name", "n")), null));
+        Assertions.assertThrows(SQLException.class, () -> template.render(new Object[]{"n", 1}, null));
+        Assertions.assertThrows(SQLException.class, () -> SQLTemplate.of("select * from dvo where name = :name and id = ?").forMap());
+        Assertions.assertThrows(SQLException.class, () -> template.forRecord(String.class));
+        Assertions.assertThrows(SQLException.class, () -> template.forRecord(String.class));
+    }
+
+    @Test
+    @DisplayName("Records and maps bind named parameters in insert, select, update and batches")
+    public void whenNamedParametersAreUsedExpectRoundTrip() throws SQLException, IOException {
+        String insert = "INSERT INTO " + TEST_TABLE + " (id, name, amount, low, high) VALUES (:id, :name, :amount, :amount, :amount)";
+        dao.insert(new NamedRecord(1, "one", 10), insert);
+        dao.insertBatch(List.of(new NamedRecord(2, "two", 20), new NamedRecord(3, "three", 30)), insert, 10);
+        dao.insert(Map.of("id", 4, "name", "four", "amount", 40), insert);
+
+        String select = "SELECT id FROM " + TEST_TABLE + " WHERE low <= :amount AND high >= :amount AND id IN (??)";
+        try (ResultRows rows = dao.select(Map.of("amount", 20), select, new Object[]{1, 2, 3})) {
+            Assertions.assertTrue(rows.next());
+            Assertions.assertEquals(2, rows.getInt("id"));
+            Assertions.assertFalse(rows.next());
+        }
+        try (ResultRows rows = dao.select(new OtherRecord("ignored", 30, 0), select, new Object[]{3, 4})) {
+            Assertions.assertTrue(rows.next());
+            Assertions.assertEquals(3, rows.getInt("id"));
+            Assertions.assertFalse(rows.next());
+        }
+
+        UpdateResults updated = dao.update(new NamedRecord(1, "uno", 11), "UPDATE " + TEST_TABLE + " SET name = :name, amount = :amount WHERE id = :id");
+        Assertions.assertEquals(1, updated.count());
+        updated = dao.update(Map.of("name", "cuatro"), "UPDATE " + TEST_TABLE + " SET name = :name WHERE id IN (??)", new Object[]{4});
+        Assertions.assertEquals(1, updated.count());
+
+        PreparedQuery query = dao.prepare("SELECT name FROM " + TEST_TABLE + " WHERE id = :id");
+        try (ResultRows rows = query.select(Map.of("id", 1))) {
+            Assertions.assertTrue(rows.next());
+            Assertions.assertEquals("uno", rows.getString("name"));
+        }
+        try (ResultRows rows = query.select(new NamedRecord(4, null, 0))) {
+            Assertions.assertTrue(rows.next());
+            Assertions.assertEquals("cuatro", rows.getString("name"));
+        }
+    }
+}
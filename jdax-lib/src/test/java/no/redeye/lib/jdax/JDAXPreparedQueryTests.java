@@ -0,0 +1,82 @@
+package no.redeye.lib.jdax;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import no.redeye.lib.jdax.types.InsertResults;
+import no.redeye.lib.jdax.types.ResultRows;
+import no.redeye.lib.jdax.types.UpdateResults;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+/**
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class JDAXPreparedQueryTests extends JDAXFeaturesTestBase {
+
+    private final String TEST_TABLE = "PREPARED_QUERY_TABLE";
+
+    private final DAOType dao = new DAOType(DATASOURCE_NAME);
+
+    @BeforeAll
+    public void setUp() throws SQLException {
+        setUpDS(Features.AUTO_COMMIT_ENABLED, Features.USE_GENERATED_KEYS_FLAG);
+        setUpTypesTable(TEST_TABLE);
+    }
+
+    @AfterAll
+    public void tearDown() {
+        tearDownDS();
+    }
+
+    @Test
+    @DisplayName("A prepared query is parsed once and executed many times")
+    public void whenPreparedQueryIsReusedExpectResultsAndStatistics() throws SQLException, IOException {
+        PreparedQuery insert = dao.prepare(toTestQuery(INSERT_FULL_RECORD, TEST_TABLE));
+        Assertions.assertEquals(15, insert.valueCount());
+
+        for (int i = 0; i < 3; i++) {
+            InsertResults inserted = insert.insert(TEST_RECORD_ALL_VALUES);
+            Assertions.assertEquals(1, inserted.count());
+        }
+        Assertions.assertEquals(3, insert.statistics().executions());
+        Assertions.assertEquals(0, insert.statistics().failures());
+
+        PreparedQuery select = dao.prepare("SELECT id, integerField FROM " + TEST_TABLE + " WHERE id IN (??)");
+        Assertions.assertEquals(1, select.inCount());
+        Assertions.assertNull(select.columns());
+
+        try (ResultRows rows = select.select((Object[]) null, new Object[]{1, 2})) {
+            int count = 0;
+            while (rows.next()) {
+                Assertions.assertEquals(INTEGER_VALUE, rows.getInt("integerField"));
+                count++;
+            }
+            Assertions.assertEquals(2, count);
+        }
+        Assertions.assertNotNull(select.columns());
+
+        try (ResultRows rows = select.select((Object[]) null, new Object[]{3})) {
+            Assertions.assertSame(select.columns(), rows.columns());
+            Assertions.assertTrue(rows.next());
+            Assertions.assertEquals(3, rows.getInt("id"));
+        }
+
+        PreparedQuery update = dao.prepare("UPDATE " + TEST_TABLE + " SET integerField = ? WHERE id IN (??)");
+        UpdateResults updated = update.update(new Object[]{7}, new Object[]{1, 2, 3});
+        Assertions.assertEquals(3, updated.count());
+    }
+
+    @Test
+    @DisplayName("Failed executions are counted")
+    public void whenPreparedQueryFailsExpectFailureCount() throws SQLException {
+        PreparedQuery select = dao.prepare("SELECT * FROM " + TEST_TABLE + " WHERE id = ?");
+
+        Assertions.assertThrows(SQLException.class, () -> select.select(new Object[0]));
+        Assertions.assertEquals(1, select.statistics().executions());
+        Assertions.assertEquals(1, select.statistics().failures());
+    }
+}
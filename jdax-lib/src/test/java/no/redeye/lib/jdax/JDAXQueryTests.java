@@ -77,6 +77,37 @@ public class JDAXQueryTests extends JDAXFeaturesTestBase {
         }
     }
 
+    @Test
+    @DisplayName("When columns are read by name, expect case-insensitive lookups and resolved indices")
+    public void whenColumnsAreReadByNameExpectCaseInsensitiveLookup() throws SQLException, IOException {
+        try (ResultRows selects = dbq.select(toTestQuery(SELECT_ALL_COLUMNS, "TEST_TABLE"))) {
+            int integerField = selects.column("IntegerField");
+            Assertions.assertEquals(integerField, selects.column("INTEGERFIELD"));
+            Assertions.assertThrows(SQLException.class, () -> selects.column("noSuchField"));
+
+            Assertions.assertTrue(selects.next());
+            Assertions.assertEquals(INTEGER_VALUE, selects.getInt(integerField));
+            Assertions.assertEquals(INTEGER_VALUE, selects.getInt("integerfield"));
+            Assertions.assertEquals(BIGINT_VALUE, selects.getLong("BigIntField"));
+        }
+    }
+
+    @Test
+    @DisplayName("When numeric columns are read as primitives, expect scaled values")
+    public void whenNumericColumnsAreReadAsPrimitivesExpectScaledValues() throws SQLException, IOException {
+        try (ResultRows selects = dbq.select(toTestQuery(SELECT_ALL_COLUMNS, "TEST_TABLE"))) {
+            Assertions.assertTrue(selects.next());
+            Assertions.assertEquals(INTEGER_VALUE, selects.getLong("integerField"));
+            Assertions.assertEquals((double) INTEGER_VALUE, selects.getDouble("integerField"));
+            Assertions.assertEquals((int) BIGINT_VALUE, selects.getInt("bigintField"));
+            Assertions.assertEquals(DECIMAL_VALUE.intValue(), selects.getInt("decimalField"));
+            Assertions.assertEquals(DECIMAL_VALUE.longValue(), selects.getLong("decimalField"));
+            Assertions.assertEquals(NUMERIC_VALUE.doubleValue(), selects.getDouble("numericField"));
+            Assertions.assertEquals((long) DOUBLE_VALUE, selects.getLong("doubleField"));
+            Assertions.assertEquals((int) REAL_VALUE, selects.getInt("realField"));
+        }
+    }
+
     @Test
     @DisplayName("When a record is SELECTed, expect typed POJO")
     public void whenARecordSelectedExpectMatchingNewObject() throws SQLException, IOException {
@@ -0,0 +1,125 @@
+package no.redeye.lib.jdax;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import no.redeye.lib.jdax.types.ResultRows;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ */
+public class JDAXReplicaTests extends TestBase {
+
+    private final String REPLICATED_NAME = "jdax-replicated";
+
+    private final String TEST_TABLE = "REPLICA_TABLE";
+
+    private final String SELECT = "SELECT source FROM " + TEST_TABLE + " ORDER BY id";
+
+    private final DAOType dao = new DAOType(REPLICATED_NAME);
+
+    private final String[] databases = {"primary", "replica1", "replica2"};
+
+    private final HikariDataSource[] dataSources = new HikariDataSource[databases.length];
+
+    private void setUp(int readYourWritesWindow, Features... features) throws SQLException {
+        for (int i = 0; i < databases.length; i++) {
+            HikariConfig config = new HikariConfig();
+            config.setDriverClassName("org.apache.derby.jdbc.EmbeddedDriver");
+            config.setJdbcUrl("jdbc:derby:memory:jdax" + databases[i] + ";create=true");
+            config.setMaximumPoolSize(2);
+            dataSources[i] = new HikariDataSource(config);
+
+            try (Connection connection = dataSources[i].getConnection(); Statement st = connection.createStatement()) {
+                st.executeUpdate("CREATE TABLE " + TEST_TABLE + " (id INT, source VARCHAR(16))");
+                st.executeUpdate("INSERT INTO " + TEST_TABLE + " (id, source) VALUES (1, '" + databases[i] + "')");
+            }
+        }
+        Connector.prepare(REPLICATED_NAME, dataSources[0], List.of(dataSources[1], dataSources[2]),
+                Map.of(Settings.READ_YOUR_WRITES_WINDOW, readYourWritesWindow), (features.length > 0) ? features : new Features[]{Features.AUTO_COMMIT_ENABLED});
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        Connector.close(REPLICATED_NAME);
+        Connector.remove(REPLICATED_NAME);
+        for (HikariDataSource dataSource : dataSources) {
+            try (dataSource; Connection connection = dataSource.getConnection(); Statement st = connection.createStatement()) {
+                st.executeUpdate("DROP TABLE " + TEST_TABLE);
+            }
+        }
+    }
+
+    private String source() throws SQLException {
+        try (ResultRows rows = dao.select(SELECT)) {
+            rows.next();
+            return rows.getString(1);
+        } catch (IOException e) {
+            throw new SQLException(e);
+        }
+    }
+
+    private void write() throws SQLException {
+        dao.update(new Object[]{2, "written"}, "INSERT INTO " + TEST_TABLE + " (id, source) VALUES (?, ?)");
+    }
+
+    @Test
+    @DisplayName("Selects go to the replica with the fewest outstanding reads, writes and transactions to the primary")
+    public void whenDatasourceHasReplicasExpectReadsOnReplicas() throws SQLException, IOException {
+        setUp(0);
+
+        Set<String> sources = new HashSet<>();
+        try (ResultRows first = dao.select(SELECT); ResultRows second = dao.select(SELECT)) {
+            first.next();
+            second.next();
+            sources.add(first.getString(1));
+            sources.add(second.getString(1));
+        }
+        Assertions.assertEquals(Set.of("replica1", "replica2"), sources);
+
+        write();
+        Assertions.assertTrue(source().startsWith("replica"));
+
+        String source = Connector.inTransaction(REPLICATED_NAME, Connection.TRANSACTION_READ_COMMITTED, this::source);
+        Assertions.assertEquals("primary", source);
+
+        try (ResultRows rows = dao.select("SELECT COUNT(*) FROM " + TEST_TABLE)) {
+            rows.next();
+            Assertions.assertEquals(1, rows.getInt(1));
+        }
+    }
+
+    @Test
+    @DisplayName("Selects read from the primary within the read-your-writes window after a write")
+    public void whenReadingYourWritesExpectPrimary() throws SQLException {
+        setUp(60000);
+
+        Assertions.assertTrue(source().startsWith("replica"));
+        write();
+        Assertions.assertEquals("primary", source());
+    }
+
+    @Test
+    @DisplayName("Failed writes do not pin reads to the primary, and released threads keep only open windows")
+    public void whenWriteFailsExpectReplica() throws SQLException {
+        setUp(60000, Features.AUTO_COMMIT_ENABLED, Features.CONNECTION_PER_STATEMENT);
+
+        Assertions.assertThrows(SQLException.class, () -> dao.update(new Object[0], "INSERT INTO MISSING_TABLE (id) VALUES (1)"));
+        Assertions.assertTrue(source().startsWith("replica"));
+
+        // Each statement borrows and releases its connection, the window outlives them
+        write();
+        Assertions.assertEquals("primary", source());
+        Assertions.assertEquals("primary", source());
+    }
+}
@@ -9,6 +9,8 @@ import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Types;
+import java.util.List;
+import java.util.Locale;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
@@ -17,6 +19,7 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.mockito.Mockito;
+import no.redeye.lib.jdax.types.Columns;
 import no.redeye.lib.jdax.types.ResultRows;
 
 /**
@@ -71,6 +74,70 @@ public class JDAXScaleTests {
         assertTypeScaling(Types.BLOB, Types.INTEGER, null, true);
     }
 
+    @Test
+    public void testValueForType() throws SQLException {
+        ResultSet rs = Mockito.mock(ResultSet.class);
+        Mockito.when(rs.getInt(1)).thenReturn(42);
+        Mockito.when(rs.getBigDecimal(2)).thenReturn(null);
+
+        Assertions.assertEquals(42L, TypeConverter.getValueForType(rs, 1, Types.INTEGER, true, Long.class));
+        Assertions.assertEquals("42", TypeConverter.getValueForType(rs, 1, Types.INTEGER, true, String.class));
+        Assertions.assertNull(TypeConverter.getValueForType(rs, 2, Types.DECIMAL, true, BigDecimal.class));
+    }
+
+    @Test
+    public void testPrimitiveReadersOnDecimal() throws SQLException {
+        ResultSet rs = Mockito.mock(ResultSet.class);
+        Mockito.when(rs.getLong(1)).thenReturn(12L);
+        Mockito.when(rs.getDouble(1)).thenReturn(12.5);
+
+        Assertions.assertEquals(12, TypeConverter.intReader(1, Types.DECIMAL, true).read(rs));
+        Assertions.assertEquals(12L, TypeConverter.longReader(1, Types.NUMERIC, true).read(rs));
+        Assertions.assertEquals(12.5, TypeConverter.doubleReader(1, Types.DECIMAL, true).read(rs));
+
+        // NULL reads as 0 for DECIMAL as for INTEGER, the mock's getters return 0
+        Assertions.assertEquals(0, TypeConverter.intReader(2, Types.DECIMAL, true).read(rs));
+        Assertions.assertEquals(0, TypeConverter.intReader(2, Types.INTEGER, true).read(rs));
+        Assertions.assertEquals(0L, TypeConverter.longReader(2, Types.DECIMAL, true).read(rs));
+        Assertions.assertEquals(0.0, TypeConverter.doubleReader(2, Types.DECIMAL, true).read(rs));
+
+        // Primitive reads do not allocate a BigDecimal per row
+        Mockito.verify(rs, Mockito.never()).getBigDecimal(Mockito.anyInt());
+        Mockito.verify(rs, Mockito.never()).getObject(Mockito.anyInt());
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testColumnLabelsUnderTurkishLocale() throws SQLException, IOException {
+        Locale locale = Locale.getDefault();
+        Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+        try {
+            ResultSet rs = Mockito.mock(ResultSet.class);
+            ResultSetMetaData metaData = Mockito.mock(ResultSetMetaData.class);
+            Mockito.when(metaData.getColumnCount()).thenReturn(2);
+            Mockito.when(metaData.getColumnLabel(1)).thenReturn("ID");
+            Mockito.when(metaData.getColumnLabel(2)).thenReturn("\u0130SIM");
+            Mockito.when(rs.getMetaData()).thenReturn(metaData);
+
+            Columns columns = Columns.of(metaData);
+            Assertions.assertEquals("id", columns.label(1));
+            Assertions.assertEquals(1, columns.index("ID"));
+            Assertions.assertEquals(1, columns.index("id"));
+            Assertions.assertEquals(2, columns.index("\u0130SIM"));
+
+            var rows = new ResultRows(rs, null, true) {
+                List<String> names() {
+                    return fieldNames;
+                }
+            };
+            Assertions.assertEquals(List.of("noop", "id", columns.label(2)), rows.names());
+            rows.close();
+            Assertions.assertFalse(rows.next());
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
     @Test
     private void testUnsupportedType() throws SQLException {
         int unsupported = Integer.MAX_VALUE - 1;
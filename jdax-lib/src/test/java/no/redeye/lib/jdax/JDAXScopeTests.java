@@ -0,0 +1,159 @@
+package no.redeye.lib.jdax;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import no.redeye.lib.jdax.types.ResultRows;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ */
+public class JDAXScopeTests extends TestBase {
+
+    private final String TEST_TABLE = "SCOPE_TABLE";
+
+    private final DAOType dao = new DAOType(DATASOURCE_NAME);
+
+    public record IdRecord(int id) {
+
+    }
+
+    private void setUp(Features... features) throws SQLException {
+        setUpDS(features);
+        Connector.inScope(DATASOURCE_NAME, () -> {
+            dao.update(new Object[0], "CREATE TABLE " + TEST_TABLE + " (id INT, name VARCHAR(32))");
+            dao.insertBatch(new Object[][]{{1, "one"}, {2, "two"}}, "INSERT INTO " + TEST_TABLE + " (id, name) VALUES (?, ?)", 2);
+            return null;
+        });
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        Connector.inScope(DATASOURCE_NAME, () -> {
+            dao.update(new Object[0], "DROP TABLE " + TEST_TABLE);
+            return null;
+        });
+        tearDownDS();
+    }
+
+    private int count() throws SQLException {
+        try (ResultRows rows = dao.select("SELECT COUNT(*) FROM " + TEST_TABLE)) {
+            rows.next();
+            return rows.getInt(1);
+        } catch (IOException e) {
+            throw new SQLException(e);
+        }
+    }
+
+    @Test
+    @DisplayName("A scope binds a connection for the length of the work, and nested scopes share it")
+    public void whenWorkRunsInScopeExpectConnectionReleased() throws SQLException {
+        setUp(Features.AUTO_COMMIT_ENABLED);
+
+        List<Connection> connections = new ArrayList<>();
+        int count = Connector.inScope(DATASOURCE_NAME, () -> {
+            connections.add(Connector.connection(DATASOURCE_NAME));
+            try (ConnectionScope inner = Connector.scope(DATASOURCE_NAME)) {
+                Assertions.assertFalse(inner.isOwner());
+                Assertions.assertSame(connections.get(0), inner.connection());
+            }
+            Assertions.assertFalse(connections.get(0).isClosed());
+            return count();
+        });
+
+        Assertions.assertEquals(2, count);
+        Assertions.assertTrue(connections.get(0).isClosed());
+    }
+
+    @Test
+    @DisplayName("A scope rolls back and releases its connection when the work throws")
+    public void whenWorkThrowsExpectRollbackAndRelease() throws SQLException {
+        setUp(Features.AUTO_COMMIT_DISABLED);
+
+        List<Connection> connections = new ArrayList<>();
+        Assertions.assertThrows(IllegalStateException.class, () -> Connector.inScope(DATASOURCE_NAME, () -> {
+            connections.add(Connector.connection(DATASOURCE_NAME));
+            dao.update(new Object[]{3, "three"}, "INSERT INTO " + TEST_TABLE + " (id, name) VALUES (?, ?)");
+            throw new IllegalStateException("failed");
+        }));
+
+        Assertions.assertTrue(connections.get(0).isClosed());
+        Assertions.assertEquals(2, (int) Connector.inScope(DATASOURCE_NAME, this::count));
+    }
+
+    @Test
+    @DisplayName("Work in a scope is committed when it returns, and a closed scope rolls back what was not committed")
+    public void whenAutoCommitIsDisabledExpectCommitOnReturn() throws SQLException {
+        setUp(Features.AUTO_COMMIT_DISABLED);
+
+        List<Connection> connections = new ArrayList<>();
+        Connector.inScope(DATASOURCE_NAME, () -> {
+            connections.add(Connector.connection(DATASOURCE_NAME));
+            return dao.update(new Object[]{3, "three"}, "INSERT INTO " + TEST_TABLE + " (id, name) VALUES (?, ?)");
+        });
+        Assertions.assertTrue(connections.get(0).isClosed());
+        Assertions.assertEquals(3, (int) Connector.inScope(DATASOURCE_NAME, this::count));
+
+        try (ConnectionScope scope = Connector.scope(DATASOURCE_NAME)) {
+            connections.add(scope.connection());
+            dao.update(new Object[]{4, "four"}, "INSERT INTO " + TEST_TABLE + " (id, name) VALUES (?, ?)");
+        }
+        Assertions.assertTrue(connections.get(1).isClosed());
+        Assertions.assertEquals(3, (int) Connector.inScope(DATASOURCE_NAME, this::count));
+    }
+
+    @Test
+    @DisplayName("Many short scopes on many threads share a small pool")
+    public void whenManyThreadsUseScopesExpectNoLeaks() throws Exception {
+        setUp(Features.AUTO_COMMIT_ENABLED);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                results.add(executor.submit(() -> Connector.inScope(DATASOURCE_NAME, this::count)));
+            }
+            for (Future<Integer> result : results) {
+                Assertions.assertEquals(2, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Operations borrow a connection per statement, and selects keep it until the rows are closed")
+    public void whenConnectionPerStatementExpectReleasedConnections() throws SQLException, IOException {
+        setUp(Features.AUTO_COMMIT_ENABLED, Features.CONNECTION_PER_STATEMENT);
+
+        dao.update(new Object[]{3, "three"}, "INSERT INTO " + TEST_TABLE + " (id, name) VALUES (?, ?)");
+        Assertions.assertFalse(Connector.bound(DATASOURCE_NAME));
+
+        ResultRows rows = dao.select("SELECT id FROM " + TEST_TABLE + " ORDER BY id");
+        Assertions.assertTrue(Connector.bound(DATASOURCE_NAME));
+        Assertions.assertTrue(rows.next());
+        rows.close();
+        Assertions.assertFalse(Connector.bound(DATASOURCE_NAME));
+
+        Assertions.assertEquals(3, dao.stream(IdRecord.class, "SELECT id FROM " + TEST_TABLE).count());
+        Assertions.assertFalse(Connector.bound(DATASOURCE_NAME));
+
+        Connector.inScope(DATASOURCE_NAME, () -> {
+            Connection connection = Connector.connection(DATASOURCE_NAME);
+            dao.update(new Object[]{3}, "DELETE FROM " + TEST_TABLE + " WHERE id = ?");
+            Assertions.assertSame(connection, Connector.connection(DATASOURCE_NAME));
+            Assertions.assertEquals(2, count());
+            Assertions.assertFalse(connection.isClosed());
+            return null;
+        });
+        Assertions.assertFalse(Connector.bound(DATASOURCE_NAME));
+    }
+}
@@ -0,0 +1,148 @@
+package no.redeye.lib.jdax;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import no.redeye.lib.jdax.types.ResultRows;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ */
+public class JDAXShardTests extends TestBase {
+
+    private final String TEST_TABLE = "SHARD_TABLE";
+
+    private final String INSERT = "INSERT INTO " + TEST_TABLE + " (id, name) VALUES (?, ?)";
+
+    private final List<String> shardNames = List.of("jdax-shard1", "jdax-shard2", "jdax-shard3");
+
+    private final HikariDataSource[] dataSources = new HikariDataSource[shardNames.size()];
+
+    private ShardedDAOType dao;
+
+    private void setUp(Map<Settings, Integer> settings, Features... features) throws SQLException {
+        for (int i = 0; i < dataSources.length; i++) {
+            HikariConfig config = new HikariConfig();
+            config.setDriverClassName("org.apache.derby.jdbc.EmbeddedDriver");
+            config.setJdbcUrl("jdbc:derby:memory:jdaxshard" + (i + 1) + ";create=true");
+            config.setMaximumPoolSize(1);
+            dataSources[i] = new HikariDataSource(config);
+
+            try (Connection connection = dataSources[i].getConnection(); Statement st = connection.createStatement()) {
+                st.executeUpdate("CREATE TABLE " + TEST_TABLE + " (id INT, name VARCHAR(16))");
+            }
+            Connector.prepare(shardNames.get(i), dataSources[i], settings, features);
+        }
+        dao = new ShardedDAOType(shardNames, (shardKey, shards) -> ((Integer) shardKey) % shards);
+        for (int id = 1; id <= 10; id++) {
+            dao.insert(id, new Object[]{id, "name" + id}, INSERT);
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        dao.close();
+        for (int i = 0; i < dataSources.length; i++) {
+            Connector.close(shardNames.get(i));
+            Connector.remove(shardNames.get(i));
+            try (HikariDataSource dataSource = dataSources[i]; Connection connection = dataSource.getConnection(); Statement st = connection.createStatement()) {
+                st.executeUpdate("DROP TABLE " + TEST_TABLE);
+            }
+        }
+    }
+
+    private List<Integer> ids(ResultRows rows) throws SQLException, IOException {
+        List<Integer> ids = new ArrayList<>();
+        try (rows) {
+            while (rows.next()) {
+                ids.add(rows.getInt("ID"));
+            }
+        }
+        return ids;
+    }
+
+    @Test
+    @DisplayName("Operations with a shard key run on the shard that holds the key")
+    public void whenShardKeyGivenExpectSingleShard() throws SQLException, IOException {
+        setUp(Map.of(), Features.AUTO_COMMIT_ENABLED);
+
+        Assertions.assertEquals(3, dao.shards());
+        Assertions.assertEquals("jdax-shard2", dao.datasourceName(4));
+
+        Assertions.assertEquals(List.of(1, 4, 7, 10), ids(dao.shard(1).select("SELECT id FROM " + TEST_TABLE + " ORDER BY id")));
+        Assertions.assertEquals(List.of(4), ids(dao.select(4, new Object[]{4}, "SELECT id FROM " + TEST_TABLE + " WHERE id = ?")));
+        Assertions.assertTrue(ids(dao.select(5, new Object[]{4}, "SELECT id FROM " + TEST_TABLE + " WHERE id = ?")).isEmpty());
+
+        Assertions.assertEquals(1, dao.update(6, new Object[]{"six", 6}, "UPDATE " + TEST_TABLE + " SET name = ? WHERE id = ?").count());
+
+        ShardedDAOType invalid = new ShardedDAOType(shardNames, (shardKey, shards) -> shards);
+        Assertions.assertThrows(SQLException.class, () -> invalid.shard(1));
+        invalid.close();
+    }
+
+    @Test
+    @DisplayName("Selects on all shards return the rows of every shard")
+    public void whenSelectAllExpectRowsOfAllShards() throws SQLException, IOException {
+        setUp(Map.of(), Features.AUTO_COMMIT_ENABLED);
+
+        List<Integer> ids = ids(dao.selectAll(new Object[]{3}, "SELECT id FROM " + TEST_TABLE + " WHERE id > ? ORDER BY id"));
+
+        Assertions.assertEquals(List.of(6, 9, 4, 7, 10, 5, 8), ids);
+    }
+
+    @Test
+    @DisplayName("Selects on all shards merge the rows in the order of a sort column")
+    public void whenSelectAllSortedExpectMergedRows() throws SQLException, IOException {
+        setUp(Map.of(), Features.AUTO_COMMIT_ENABLED);
+
+        Assertions.assertEquals(List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10),
+                ids(dao.selectAll("ID", new Object[0], "SELECT id, name FROM " + TEST_TABLE + " ORDER BY id")));
+
+        Assertions.assertEquals(List.of(10, 9, 8, 7, 6, 5, 4, 3, 2, 1),
+                ids(dao.selectAll("ID", ShardedDAOType.NATURAL_ORDER.reversed(), new Object[0], "SELECT id, name FROM " + TEST_TABLE + " ORDER BY id DESC")));
+
+        try (ResultRows rows = dao.selectAll("NAME", new Object[]{2, 5}, "SELECT id, name FROM " + TEST_TABLE + " WHERE id IN (?, ?) ORDER BY name")) {
+            Assertions.assertTrue(rows.next());
+            Assertions.assertEquals("name2", rows.getString("NAME"));
+            Assertions.assertTrue(rows.next());
+            Assertions.assertEquals("name5", rows.getString("NAME"));
+            Assertions.assertFalse(rows.next());
+        }
+        Assertions.assertThrows(SQLException.class, () -> dao.selectAll(new Object[0], "SELECT missing FROM " + TEST_TABLE));
+    }
+
+    @Test
+    @DisplayName("Selects on all shards borrow connections, split IN clauses and detach results as select does")
+    public void whenSelectAllWithFeaturesExpectSelectBehaviour() throws SQLException, IOException {
+        setUp(Map.of(Settings.IN_CLAUSE_MAX_PARAMETERS, 2),
+                Features.AUTO_COMMIT_ENABLED, Features.CONNECTION_PER_STATEMENT, Features.DETACHED_RESULTS);
+
+        ResultRows rows = dao.selectAll(new Object[0], "SELECT id FROM " + TEST_TABLE + " WHERE id IN (??)", new Object[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10});
+        for (String shardName : shardNames) {
+            Assertions.assertFalse(Connector.bound(shardName));
+        }
+        List<Integer> ids = ids(rows);
+        Collections.sort(ids);
+        Assertions.assertEquals(List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10), ids);
+    }
+
+    @Test
+    @DisplayName("Selects on all shards require the shards to agree on null results")
+    public void whenShardsDifferInNullResultsExpectException() throws SQLException {
+        setUp(Map.of(), Features.AUTO_COMMIT_ENABLED);
+        Connector.remove(shardNames.get(2));
+        Connector.prepare(shardNames.get(2), dataSources[2], Features.AUTO_COMMIT_ENABLED, Features.NULL_RESULTS_DISABLED);
+
+        Assertions.assertThrows(SQLException.class, () -> dao.selectAll(new Object[0], "SELECT id FROM " + TEST_TABLE));
+    }
+}
@@ -0,0 +1,105 @@
+package no.redeye.lib.jdax;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Map;
+import no.redeye.lib.jdax.types.CacheStatistics;
+import no.redeye.lib.jdax.types.ResultRows;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ */
+public class JDAXStatementCacheTests extends JDAXFeaturesTestBase {
+
+    private final String TEST_TABLE = "STATEMENT_CACHE_TABLE";
+
+    private final DAOType dao = new DAOType(DATASOURCE_NAME);
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        setUpDS(Map.of(Settings.STATEMENT_CACHE_SIZE, 2), Features.AUTO_COMMIT_ENABLED);
+        setUpTypesTable(TEST_TABLE);
+        dbq.insertRow(TEST_RECORD_ALL_VALUES, toTestQuery(INSERT_FULL_RECORD, TEST_TABLE));
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        dao.update(new Object[0], "DROP TABLE " + TEST_TABLE);
+        tearDownDS();
+    }
+
+    private int count(String sql) throws SQLException, IOException {
+        int count = 0;
+        try (ResultRows rows = dao.select(sql)) {
+            while (rows.next()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    @DisplayName("Repeated statements are served from the connection's statement cache")
+    public void whenStatementIsRepeatedExpectCacheHits() throws SQLException, IOException {
+        String sql = "SELECT id FROM " + TEST_TABLE;
+        CacheStatistics before = Connector.statementCacheStatistics(DATASOURCE_NAME);
+
+        for (int i = 0; i < 5; i++) {
+            Assertions.assertEquals(1, count(sql));
+        }
+
+        CacheStatistics after = Connector.statementCacheStatistics(DATASOURCE_NAME);
+        Assertions.assertEquals(4, after.hits() - before.hits());
+        Assertions.assertTrue(after.size() > 0);
+    }
+
+    @Test
+    @DisplayName("Rows queued by a failed batch are not sent with the next batch")
+    public void whenBatchFailsExpectQueuedRowsDropped() throws SQLException, IOException {
+        dao.update(new Object[0], "CREATE TABLE BATCH_TABLE (id INT)");
+        try {
+            String insert = "INSERT INTO BATCH_TABLE (id) VALUES (?)";
+            Assertions.assertThrows(SQLException.class, () -> dao.updateBatch(new Object[][]{{1}, {2}, {}}, insert, 10));
+
+            dao.updateBatch(new Object[][]{{3}}, insert, 10);
+
+            Assertions.assertEquals(1, count("SELECT id FROM BATCH_TABLE"));
+            Assertions.assertEquals(1, count("SELECT id FROM BATCH_TABLE WHERE id = 3"));
+        } finally {
+            dao.update(new Object[0], "DROP TABLE BATCH_TABLE");
+        }
+    }
+
+    @Test
+    @DisplayName("A statement in use by an open ResultRows is not shared")
+    public void whenStatementIsInUseExpectSeparateStatement() throws SQLException, IOException {
+        String sql = "SELECT id FROM " + TEST_TABLE;
+
+        try (ResultRows outer = dao.select(sql)) {
+            Assertions.assertTrue(outer.next());
+            Assertions.assertEquals(1, count(sql));
+            Assertions.assertEquals(1, outer.getInt("id"));
+            Assertions.assertFalse(outer.next());
+        }
+    }
+
+    @Test
+    @DisplayName("Least recently used statements are evicted, and all are closed with the connection")
+    public void whenCacheIsFullExpectEvictions() throws SQLException, IOException {
+        CacheStatistics before = Connector.statementCacheStatistics(DATASOURCE_NAME);
+
+        count("SELECT id FROM " + TEST_TABLE);
+        count("SELECT integerField FROM " + TEST_TABLE);
+        count("SELECT bigintField FROM " + TEST_TABLE);
+
+        CacheStatistics after = Connector.statementCacheStatistics(DATASOURCE_NAME);
+        Assertions.assertTrue(after.evictions() > before.evictions());
+
+        Connector.close(DATASOURCE_NAME);
+        Assertions.assertEquals(0, Connector.statementCacheStatistics(DATASOURCE_NAME).size());
+    }
+}
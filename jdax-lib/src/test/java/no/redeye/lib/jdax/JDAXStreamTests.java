@@ -0,0 +1,85 @@
+package no.redeye.lib.jdax;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import no.redeye.lib.jdax.types.UncheckedSQLException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ */
+public class JDAXStreamTests extends TestBase {
+
+    private final String TEST_TABLE = "STREAM_TABLE";
+
+    private final DAOType dao = new DAOType(DATASOURCE_NAME);
+
+    public record StreamRecord(int id, String name) {
+
+    }
+
+    private void setUp(Features... features) throws SQLException {
+        setUpDS(features);
+        dao.update(new Object[0], "CREATE TABLE " + TEST_TABLE + " (id INT, name VARCHAR(32))");
+
+        Object[][] rows = new Object[20][];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = new Object[]{i, "name" + i};
+        }
+        dao.insertBatch(rows, "INSERT INTO " + TEST_TABLE + " (id, name) VALUES (?, ?)", 20);
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        dao.update(new Object[0], "DROP TABLE " + TEST_TABLE);
+        tearDownDS();
+    }
+
+    @Test
+    @DisplayName("Rows are streamed lazily as records, and the statement is closed when the stream is consumed")
+    public void whenRowsAreStreamedExpectRecords() throws SQLException {
+        setUp(Features.AUTO_COMMIT_ENABLED);
+
+        List<String> names = dao.stream(StreamRecord.class, new Object[]{10}, "SELECT id, name FROM " + TEST_TABLE + " WHERE id >= ? ORDER BY id")
+                .filter(r -> r.id() % 2 == 0)
+                .map(StreamRecord::name)
+                .collect(Collectors.toList());
+        Assertions.assertEquals(List.of("name10", "name12", "name14", "name16", "name18"), names);
+
+        try (Stream<StreamRecord> records = dao.stream(StreamRecord.class, "SELECT id, name FROM " + TEST_TABLE + " WHERE id IN (??) ORDER BY id", new Object[]{3, 4, 5})) {
+            Assertions.assertEquals(3, records.findFirst().orElseThrow().id());
+        }
+    }
+
+    @Test
+    @DisplayName("Streams close the thread's connection when the feature is enabled")
+    public void whenStreamClosesConnectionExpectClosedConnection() throws SQLException {
+        setUp(Features.AUTO_COMMIT_ENABLED, Features.STREAM_CLOSES_CONNECTION);
+
+        Connection connection = Connector.connection(DATASOURCE_NAME);
+        Assertions.assertEquals(20, dao.stream(StreamRecord.class, "SELECT id, name FROM " + TEST_TABLE).count());
+        Assertions.assertTrue(connection.isClosed());
+
+        connection = Connector.connection(DATASOURCE_NAME);
+        try (Stream<StreamRecord> records = dao.stream(StreamRecord.class, "SELECT id, name FROM " + TEST_TABLE)) {
+            records.limit(1).forEach(r -> Assertions.assertFalse(r.name().isEmpty()));
+        }
+        Assertions.assertTrue(connection.isClosed());
+    }
+
+    @Test
+    @DisplayName("SQL errors during consumption are thrown as UncheckedSQLException")
+    public void whenRowsCannotBeMappedExpectUncheckedException() throws SQLException {
+        setUp(Features.AUTO_COMMIT_ENABLED);
+
+        try (Stream<StreamRecord> records = dao.stream(StreamRecord.class, "SELECT id FROM " + TEST_TABLE)) {
+            UncheckedSQLException e = Assertions.assertThrows(UncheckedSQLException.class, () -> records.count());
+            Assertions.assertNotNull(e.getCause());
+        }
+    }
+}
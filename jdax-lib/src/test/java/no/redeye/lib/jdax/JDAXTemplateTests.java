@@ -0,0 +1,151 @@
+package no.redeye.lib.jdax;
+
+import java.sql.SQLException;
+import no.redeye.lib.jdax.types.CacheStatistics;
+import no.redeye.lib.jdax.types.QueryInputs;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ */
+public class JDAXTemplateTests {
+
+    @Test
+    @DisplayName("IN clauses are expanded and values are bound in statement order")
+    public void whenQueryHasInClausesExpectExpandedStatement() throws SQLException {
+        String sql = "select a, b from thing where (c = ? and d in (??) and e in (??)) or f = ?";
+        QueryInputs qi = SQLTemplate.of(sql).render(
+                new Object[]{"c", "f"},
+                new Object[][]{{"d1", "d2", "d3"}, {1, 2}});
+
+        Assertions.assertEquals("select a, b from thing where (c =? and d in (?,?,?) and e in (?,?)) or f =?", qi.sql());
+        Assertions.assertArrayEquals(new Object[]{"c", "d1", "d2", "d3", 1, 2, "f"}, qi.values());
+    }
+
+    @Test
+    @DisplayName("Skip and tag markers consume values without binding them")
+    public void whenQueryHasSkipAndTagMarkersExpectValuesDropped() throws SQLException {
+        QueryInputs skipped = SQLTemplate.of("insert into dvo (number, name) values (#, ?, ?)")
+                .render(new Object[]{1, 2, "two"}, null);
+        Assertions.assertEquals("insert into dvo (number, name) values (?, ?)", skipped.sql());
+        Assertions.assertArrayEquals(new Object[]{2, "two"}, skipped.values());
+
+        QueryInputs tagged = SQLTemplate.of("insert into dvo (id, number, name) values (#SEQ_TESTING.nextval, ?, ?)")
+                .render(new Object[]{1, 2, "two"}, null);
+        Assertions.assertEquals("insert into dvo (id, number, name) values (SEQ_TESTING.nextval, ?, ?)", tagged.sql());
+        Assertions.assertArrayEquals(new Object[]{2, "two"}, tagged.values());
+    }
+
+    @Test
+    @DisplayName("Markers in string literals, quoted identifiers and comments are left as-is")
+    public void whenMarkersAreQuotedOrCommentedExpectNoParameters() throws SQLException {
+        String sql = """
+            select "what?", 'it''s #1?' -- really?
+            from dvo /* ?? # */ where id = ?""";
+        QueryInputs qi = SQLTemplate.of(sql).render(new Object[]{7}, null);
+
+        Assertions.assertEquals("""
+            select "what?", 'it''s #1?' -- really?
+            from dvo /* ?? # */ where id =?""", qi.sql());
+        Assertions.assertArrayEquals(new Object[]{7}, qi.values());
+    }
+
+    @Test
+    @DisplayName("IN clauses following a comma keep the separator")
+    public void whenInClauseFollowsCommaExpectSeparator() throws SQLException {
+        QueryInputs qi = SQLTemplate.of("select * from dvo where name = ? and id in (1, ??)")
+                .render(new Object[]{"one"}, new Object[][]{{2, 3}});
+
+        Assertions.assertEquals("select * from dvo where name =? and id in (1, ?,?)", qi.sql());
+        Assertions.assertArrayEquals(new Object[]{"one", 2, 3}, qi.values());
+    }
+
+    @Test
+    @DisplayName("Quoted skip and tag markers are replaced like unquoted markers")
+    public void whenTagIsQuotedExpectReplacement() throws SQLException {
+        QueryInputs qi = SQLTemplate.of("insert into dvo (id, number, name, code) values ('#SEQ_TESTING.nextval', '#', ?, ?, 'x#1')")
+                .render(new Object[]{1, 2, 3, "three"}, null);
+
+        Assertions.assertEquals("insert into dvo (id, number, name, code) values (SEQ_TESTING.nextval, ?, ?, 'x#1')", qi.sql());
+        Assertions.assertArrayEquals(new Object[]{3, "three"}, qi.values());
+    }
+
+    @Test
+    @DisplayName("Single character tags are replaced like longer tags")
+    public void whenTagIsSingleCharacterExpectReplacement() throws SQLException {
+        QueryInputs qi = SQLTemplate.of("insert into dvo (id, name) values (#1, ?)")
+                .render(new Object[]{0, "zero"}, null);
+
+        Assertions.assertEquals("insert into dvo (id, name) values (1, ?)", qi.sql());
+        Assertions.assertArrayEquals(new Object[]{"zero"}, qi.values());
+    }
+
+    @Test
+    @DisplayName("Missing values and IN parameters are reported as SQLExceptions")
+    public void whenValuesAreMissingExpectSQLException() throws SQLException {
+        SQLTemplate template = SQLTemplate.of("select * from dvo where id = ? and name in (??)");
+
+        Assertions.assertThrows(SQLException.class, () -> template.render(new Object[0], new Object[][]{{1}}));
+        Assertions.assertThrows(SQLException.class, () -> template.render(new Object[]{1}, null));
+        Assertions.assertThrows(SQLException.class, () -> template.render(new Object[]{1}, new Object[][]{{}}));
+        Assertions.assertThrows(SQLException.class, () -> template.render(new Object[]{1}, new Object[][]{null}, 0, new String[]{"SELECT v FROM t"}));
+        Assertions.assertThrows(SQLException.class, () -> SQLTemplate.of(null));
+
+        // Skipped values count only when a ? marker follows them
+        Assertions.assertEquals(2, SQLTemplate.of("insert into dvo values (#, ?, #)").valueCount());
+    }
+
+    @Test
+    @DisplayName("Repeated statements are served from the template cache")
+    public void whenStatementIsRepeatedExpectCacheHits() throws SQLException {
+        String sql = "select * from dvo where id = ? and number = ?" + System.nanoTime();
+        CacheStatistics before = DAOType.templateCacheStatistics();
+
+        SQLTemplate first = SQLTemplate.of(sql);
+        SQLTemplate second = SQLTemplate.of(sql);
+        CacheStatistics after = DAOType.templateCacheStatistics();
+
+        Assertions.assertSame(first, second);
+        Assertions.assertTrue(after.misses() > before.misses());
+        Assertions.assertTrue(after.hits() > before.hits());
+        Assertions.assertTrue(after.hitRatio() > 0.0d);
+    }
+
+    @Test
+    @DisplayName("A full template cache evicts the least recently used statements")
+    public void whenCacheIsFullExpectLeastRecentlyUsedEvicted() throws SQLException {
+        String prefix = "select * from dvo where id = ? and seq = " + System.nanoTime() + " + ";
+        SQLTemplate hot = SQLTemplate.of(prefix + "-1");
+        SQLTemplate cold = SQLTemplate.of(prefix + "-2");
+        CacheStatistics before = DAOType.templateCacheStatistics();
+
+        for (int i = 0; i < 2048; i++) {
+            SQLTemplate.of(prefix + i);
+            Assertions.assertSame(hot, SQLTemplate.of(prefix + "-1"));
+        }
+        CacheStatistics after = DAOType.templateCacheStatistics();
+
+        Assertions.assertTrue(after.evictions() > before.evictions());
+        Assertions.assertTrue(after.size() <= 1024);
+        Assertions.assertSame(hot, SQLTemplate.of(prefix + "-1"));
+        Assertions.assertNotSame(cold, SQLTemplate.of(prefix + "-2"));
+    }
+
+    @Test
+    @DisplayName("Bucketed IN clauses are padded with their last value")
+    public void whenInClausesAreBucketedExpectPaddedStatement() throws SQLException {
+        QueryInputs qi = SQLTemplate.of("select * from dvo where id in (??) and name = ?")
+                .render(new Object[]{"one"}, new Object[][]{{1, 2, 3}}, 1, null);
+
+        Assertions.assertEquals("select * from dvo where id in (?,?,?,?) and name =?", qi.sql());
+        Assertions.assertArrayEquals(new Object[]{1, 2, 3, 3, "one"}, qi.values());
+
+        Assertions.assertEquals(3, SQLTemplate.bucket(3, 0));
+        Assertions.assertEquals(1, SQLTemplate.bucket(1, 1));
+        Assertions.assertEquals(512, SQLTemplate.bucket(300, 1));
+        Assertions.assertEquals(64, SQLTemplate.bucket(50, 64));
+        Assertions.assertEquals(128, SQLTemplate.bucket(65, 64));
+        Assertions.assertEquals(192, SQLTemplate.bucket(130, 64));
+    }
+}
@@ -0,0 +1,128 @@
+package no.redeye.lib.jdax;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import no.redeye.lib.jdax.types.ResultRows;
+import no.redeye.lib.jdax.types.TransactionStatistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ */
+public class JDAXTransactionTests extends TestBase {
+
+    private final String TEST_TABLE = "TRANSACTION_TABLE";
+
+    private final DAOType dao = new DAOType(DATASOURCE_NAME);
+
+    private void setUp(int retries) throws SQLException {
+        setUpDS(Map.of(Settings.TRANSACTION_RETRIES, retries, Settings.TRANSACTION_RETRY_DELAY, 1), Features.AUTO_COMMIT_ENABLED);
+        dao.update(new Object[0], "CREATE TABLE " + TEST_TABLE + " (id INT, name VARCHAR(32))");
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        dao.update(new Object[0], "DROP TABLE " + TEST_TABLE);
+        tearDownDS();
+    }
+
+    private int count() throws SQLException {
+        try (ResultRows rows = dao.select("SELECT COUNT(*) FROM " + TEST_TABLE)) {
+            rows.next();
+            return rows.getInt(1);
+        } catch (IOException e) {
+            throw new SQLException(e);
+        }
+    }
+
+    private void insert(int id) throws SQLException {
+        dao.update(new Object[]{id, "name" + id}, "INSERT INTO " + TEST_TABLE + " (id, name) VALUES (?, ?)");
+    }
+
+    @Test
+    @DisplayName("Deadlocks and serialization failures are rolled back and retried, and the last attempt is committed")
+    public void whenTransactionIsRetryableExpectRetries() throws SQLException {
+        setUp(3);
+
+        AtomicInteger attempts = new AtomicInteger();
+        int result = Connector.inTransaction(DATASOURCE_NAME, Connection.TRANSACTION_SERIALIZABLE, () -> {
+            Connection connection = Connector.connection(DATASOURCE_NAME);
+            Assertions.assertFalse(connection.getAutoCommit());
+            Assertions.assertEquals(Connection.TRANSACTION_SERIALIZABLE, connection.getTransactionIsolation());
+
+            insert(attempts.get());
+            switch (attempts.incrementAndGet()) {
+                case 1 ->
+                    throw new SQLTransactionRollbackException("deadlock");
+                case 2 -> {
+                    SQLException batch = new SQLException("batch failed", "XJ208");
+                    batch.setNextException(new SQLException("deadlock", "40001"));
+                    throw batch;
+                }
+                default -> {
+                    // Nested transactions join the outer one
+                    Connector.inTransaction(DATASOURCE_NAME, Connection.TRANSACTION_READ_COMMITTED, () -> {
+                        insert(10);
+                        return null;
+                    });
+                    return count();
+                }
+            }
+        });
+
+        Assertions.assertEquals(3, attempts.get());
+        Assertions.assertEquals(2, result);
+        Assertions.assertEquals(2, count());
+        Assertions.assertTrue(Connector.connection(DATASOURCE_NAME).getAutoCommit());
+
+        TransactionStatistics statistics = Connector.transactionStatistics(DATASOURCE_NAME);
+        Assertions.assertEquals(1, statistics.commits());
+        Assertions.assertEquals(2, statistics.retries());
+        Assertions.assertEquals(0, statistics.failures());
+        Assertions.assertTrue(statistics.wastedNanos() > 0);
+    }
+
+    @Test
+    @DisplayName("Other failures, and failures after the last retry, are rolled back and thrown")
+    public void whenTransactionFailsExpectRollback() throws SQLException {
+        setUp(1);
+
+        AtomicInteger attempts = new AtomicInteger();
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Connector.inTransaction(DATASOURCE_NAME, Connection.TRANSACTION_READ_COMMITTED, () -> {
+            attempts.incrementAndGet();
+            insert(1);
+            throw new IllegalArgumentException("failed");
+        }));
+        Assertions.assertEquals(1, attempts.get());
+
+        SQLException e = Assertions.assertThrows(SQLException.class, () -> Connector.inTransaction(DATASOURCE_NAME, Connection.TRANSACTION_READ_COMMITTED, () -> {
+            attempts.incrementAndGet();
+            insert(2);
+            throw new SQLException("serialization failure", "40001");
+        }));
+        Assertions.assertEquals("40001", e.getSQLState());
+        Assertions.assertEquals(3, attempts.get());
+
+        // Lock wait timeouts are not retried
+        e = Assertions.assertThrows(SQLException.class, () -> Connector.inTransaction(DATASOURCE_NAME, Connection.TRANSACTION_READ_COMMITTED, () -> {
+            attempts.incrementAndGet();
+            insert(3);
+            throw new SQLException("lock timeout", "40XL1");
+        }));
+        Assertions.assertEquals("40XL1", e.getSQLState());
+        Assertions.assertEquals(4, attempts.get());
+        Assertions.assertEquals(0, count());
+
+        TransactionStatistics statistics = Connector.transactionStatistics(DATASOURCE_NAME);
+        Assertions.assertEquals(0, statistics.commits());
+        Assertions.assertEquals(1, statistics.retries());
+        Assertions.assertEquals(3, statistics.failures());
+        Assertions.assertEquals(1d / 3, statistics.retriesPerTransaction());
+    }
+}
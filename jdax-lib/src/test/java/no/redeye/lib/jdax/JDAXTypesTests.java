@@ -17,6 +17,7 @@ import no.redeye.lib.jdax.types.ResultRows;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -286,4 +287,31 @@ public class JDAXTypesTests extends JDAXFeaturesTestBase {
     public void bytesTest() throws SQLException, IOException {
         testInsertAndRetrieveTypeRecord(Byte[].class, new Byte[]{3, 2, 1, 0});
     }
+
+    public record Tag(String value) {
+
+    }
+
+    public record TaggedRow(int id, Tag field) {
+
+    }
+
+    @Test
+    @DisplayName("Conversions registered for application types are used by record mappers")
+    public void whenConversionIsRegisteredExpectApplicationType() throws SQLException, IOException {
+        TypeRegistry.register(Types.VARCHAR, Tag.class, v -> new Tag((String) v));
+        Assertions.assertTrue(TypeRegistry.isCompatible(Types.VARCHAR, Tag.class));
+        Assertions.assertFalse(TypeRegistry.isCompatible(Types.INTEGER, Tag.class));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> TypeRegistry.register(-12345, Tag.class, v -> v));
+
+        int id = ai.getAndIncrement();
+        String tableName = createTypeTable(String.class);
+        createTypeRecord(id, tableName, String.class, "tagged");
+        try (ResultRows selects = dbq.select(new Object[]{id}, String.format(SELECT_TYPE_TEMPLATE, tableName))) {
+            Assertions.assertTrue(selects.next());
+            Assertions.assertEquals(new Tag("tagged"), selects.get(TaggedRow.class).field());
+        } finally {
+            dbq.update(String.format(DROP_TYPE_TEMPLATE, tableName));
+        }
+    }
 }
@@ -13,6 +13,7 @@ import java.sql.SQLException;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.Map;
 import java.util.function.Function;
 import javax.sql.DataSource;
 import no.redeye.lib.jdax.sql.DBQueries;
@@ -52,8 +53,12 @@ public class TestBase {
     }
 
     protected void setUpDS(Features... features) throws SQLException {
-        logger.info("Set up datasource features, {}", features);
-        initDS(features);
+        setUpDS(Map.of(), features);
+    }
+
+    protected void setUpDS(Map<Settings, Integer> settings, Features... features) throws SQLException {
+        logger.info("Set up datasource features, {}, settings {}", features, settings);
+        initDS(settings, features);
     }
 
     protected void setUpTestTables() throws SQLException {
@@ -95,7 +100,7 @@ public class TestBase {
         return sb.toString();
     }
 
-    private synchronized void initDS(Features... features) throws SQLException {
+    private synchronized void initDS(Map<Settings, Integer> settings, Features... features) throws SQLException {
         DataSource dataSource = dataSource();
 
         Function<String, DataSource> dsCreator = new Function<String, DataSource>() {
@@ -105,7 +110,7 @@ public class TestBase {
             }
         };
 
-        Connector.prepare(DATASOURCE_NAME, dsCreator, features);
+        Connector.prepare(DATASOURCE_NAME, dsCreator, settings, features);
     }
 
     private synchronized DataSource dataSource() {